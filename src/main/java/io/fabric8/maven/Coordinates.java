@@ -0,0 +1,201 @@
+package io.fabric8.maven;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Objects;
+
+import org.codehaus.plexus.util.xml.pull.EntityReplacementMap;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * The coordinates of a pom.xml file, obtained from {@link Maven#readCoordinates(java.nio.file.Path)}.
+ * <p>
+ * Values are the ones declared in the file: no inheritance from the parent nor interpolation is performed.
+ */
+public final class Coordinates {
+
+    private final String groupId;
+
+    private final String artifactId;
+
+    private final String version;
+
+    private final String packaging;
+
+    private final String parentGroupId;
+
+    private final String parentArtifactId;
+
+    private final String parentVersion;
+
+    Coordinates(String groupId, String artifactId, String version, String packaging, String parentGroupId,
+            String parentArtifactId, String parentVersion) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.packaging = packaging == null ? "jar" : packaging;
+        this.parentGroupId = parentGroupId;
+        this.parentArtifactId = parentArtifactId;
+        this.parentVersion = parentVersion;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the declared packaging, or "jar" if none is declared
+     */
+    public String getPackaging() {
+        return packaging;
+    }
+
+    /**
+     * @return the groupId of the parent, or null if no parent is declared
+     */
+    public String getParentGroupId() {
+        return parentGroupId;
+    }
+
+    /**
+     * @return the artifactId of the parent, or null if no parent is declared
+     */
+    public String getParentArtifactId() {
+        return parentArtifactId;
+    }
+
+    /**
+     * @return the version of the parent, or null if no parent is declared
+     */
+    public String getParentVersion() {
+        return parentVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Coordinates)) {
+            return false;
+        }
+        Coordinates that = (Coordinates) o;
+        return Objects.equals(groupId, that.groupId)
+                && Objects.equals(artifactId, that.artifactId)
+                && Objects.equals(version, that.version)
+                && Objects.equals(packaging, that.packaging)
+                && Objects.equals(parentGroupId, that.parentGroupId)
+                && Objects.equals(parentArtifactId, that.parentArtifactId)
+                && Objects.equals(parentVersion, that.parentVersion);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(groupId, artifactId, version, packaging, parentGroupId, parentArtifactId, parentVersion);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(groupId).append(':').append(artifactId).append(':').append(packaging).append(':').append(version);
+        if (parentArtifactId != null) {
+            sb.append(" (parent ").append(parentGroupId).append(':').append(parentArtifactId).append(':')
+                    .append(parentVersion).append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Scan the top-level elements of a pom.xml, stopping as soon as all the coordinates were found. Maven does not
+     * enforce the order of the top-level elements, so the scan goes on until {@code </project>} otherwise. Other
+     * elements (modules, properties, dependencies, build...) are skipped without being materialized.
+     */
+    static Coordinates read(Reader reader) throws IOException, XmlPullParserException {
+        XmlPullParser parser = new MXParser(EntityReplacementMap.defaultEntityReplacementMap);
+        parser.setInput(reader);
+        String groupId = null;
+        String artifactId = null;
+        String version = null;
+        String packaging = null;
+        String[] parent = null;
+        parser.nextTag();
+        if (!"project".equals(parser.getName())) {
+            throw new XmlPullParserException("Expected root element 'project' but found '" + parser.getName() + "'",
+                    parser, null);
+        }
+        int event = parser.next();
+        while (event != XmlPullParser.END_DOCUMENT
+                && (groupId == null || artifactId == null || version == null || packaging == null
+                        || parent == null)) {
+            if (event == XmlPullParser.START_TAG && parser.getDepth() == 2) {
+                switch (parser.getName()) {
+                    case "groupId":
+                        groupId = parser.nextText().trim();
+                        break;
+                    case "artifactId":
+                        artifactId = parser.nextText().trim();
+                        break;
+                    case "version":
+                        version = parser.nextText().trim();
+                        break;
+                    case "packaging":
+                        packaging = parser.nextText().trim();
+                        break;
+                    case "parent":
+                        parent = readParent(parser);
+                        break;
+                    default:
+                        skip(parser);
+                        break;
+                }
+            }
+            event = parser.next();
+        }
+        return parent == null
+                ? new Coordinates(groupId, artifactId, version, packaging, null, null, null)
+                : new Coordinates(groupId, artifactId, version, packaging, parent[0], parent[1], parent[2]);
+    }
+
+    private static String[] readParent(XmlPullParser parser) throws IOException, XmlPullParserException {
+        String[] parent = new String[3];
+        int event = parser.next();
+        while (event != XmlPullParser.END_TAG || parser.getDepth() > 2) {
+            if (event == XmlPullParser.START_TAG) {
+                switch (parser.getName()) {
+                    case "groupId":
+                        parent[0] = parser.nextText().trim();
+                        break;
+                    case "artifactId":
+                        parent[1] = parser.nextText().trim();
+                        break;
+                    case "version":
+                        parent[2] = parser.nextText().trim();
+                        break;
+                    default:
+                        skip(parser);
+                        break;
+                }
+            }
+            event = parser.next();
+        }
+        return parent;
+    }
+
+    private static void skip(XmlPullParser parser) throws IOException, XmlPullParserException {
+        int depth = parser.getDepth();
+        int event = parser.next();
+        while (event != XmlPullParser.END_TAG || parser.getDepth() > depth) {
+            event = parser.next();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.fabric8.maven;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * A small pool of reusable instances of a class that is not thread-safe, shared by all threads.
+ * <p>
+ * Unlike a {@link ThreadLocal}, the pool keeps a bounded number of idle instances however many threads use it, and
+ * none of them stays attached to a thread once the call using it returns. Callers never wait: an instance is created
+ * when none is idle, and an instance released while the pool is full is left to the garbage collector.
+ *
+ * @param <T> the type of the pooled instances
+ */
+final class InstancePool<T> {
+
+    private final BlockingQueue<T> idle;
+
+    private final Supplier<T> factory;
+
+    /**
+     * Create a pool keeping up to one idle instance per available processor
+     *
+     * @param factory creates the instances when none is idle
+     */
+    InstancePool(Supplier<T> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param factory creates the instances when none is idle
+     * @param capacity the maximum number of idle instances kept
+     */
+    InstancePool(Supplier<T> factory, int capacity) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        this.factory = factory;
+    }
+
+    /**
+     * @return an idle instance, or a new one if none is idle
+     */
+    T acquire() {
+        T instance = idle.poll();
+        return instance == null ? factory.get() : instance;
+    }
+
+    /**
+     * Hand an instance back for a later {@link #acquire()}. The instance must no longer be used, and must not hold
+     * anything the caller does not want to be retained.
+     *
+     * @param instance the instance to release
+     */
+    void release(T instance) {
+        idle.offer(instance);
+    }
+}
@@ -1,30 +1,81 @@
 package io.fabric8.maven;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
 
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.jdom2.Document;
+import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
-import org.jdom2.output.Format;
+import org.xml.sax.InputSource;
 
 /**
+ * Reads and writes Maven {@link Model}s.
+ * <p>
+ * The methods of this class can be called concurrently. The XML parsers, the writers updating documents and the
+ * buffers documents are encoded into are taken from small pools shared by all threads and reused from one call to the
+ * next. At most one idle instance of each per processor is retained, and it holds no reference to the documents it
+ * handled.
+ *
  * @author <a href="mailto:ggastald@redhat.com">George Gastaldi</a>
  */
 public final class Maven {
 
+    /**
+     * Parsers and writers are not thread-safe but they are reusable. The ones costly to create are pooled, the Xpp3
+     * readers and writers are cheap enough to be created for each call.
+     */
+    private static final InstancePool<SAXBuilder> SAX_BUILDERS = new InstancePool<>(SAXBuilder::new);
+
+    private static final InstancePool<MavenJDOMWriter> JDOM_WRITERS = new InstancePool<>(MavenJDOMWriter::new);
+
+    /**
+     * The {@link Document} property holding the charset of the pom.xml the document was parsed from
+     */
+    private static final String CHARSET = Charset.class.getName();
+
     private Maven() {
         throw new IllegalAccessError("Utility class");
     }
@@ -51,13 +102,14 @@ public final class Maven {
     }
 
     /**
-     * Read the {@link Path} as a {@link Model}
+     * Read the {@link Path} as a {@link Model}, decoding it with the charset declared by its byte order mark or its XML
+     * declaration (UTF-8 by default)
      *
      * @param pom a path to a pom.xml file
      * @return the maven {@link Model}
      */
     public static Model readModel(Path pom) {
-        try (BufferedReader br = Files.newBufferedReader(pom)) {
+        try (Reader br = PomEncoding.newReader(pom)) {
             Model model = readModel(br);
             model.setPomFile(pom.toFile());
             // https://github.com/fabric8-launcher/maven-model-helper/issues/43
@@ -70,6 +122,165 @@ public final class Maven {
         }
     }
 
+    /**
+     * Read only the coordinates of the {@link Path}, without building the whole {@link Model}
+     *
+     * @param pom a path to a pom.xml file
+     * @return the {@link Coordinates} declared in the pom.xml
+     */
+    public static Coordinates readCoordinates(Path pom) {
+        try (Reader br = PomEncoding.newReader(pom)) {
+            return readCoordinates(br);
+        } catch (IOException io) {
+            throw new UncheckedIOException("Error while reading pom.xml", io);
+        }
+    }
+
+    /**
+     * Read only the coordinates of a pom, without building the whole {@link Model}. Scanning stops as soon as the
+     * groupId, artifactId, version, packaging and parent were all found. Otherwise it goes on to the end of the
+     * project, skipping the other top-level elements (modules, properties, dependencies, build...) without building
+     * them.
+     * Contents whose root element is not a project are rejected.
+     *
+     * @param rdr a Reader on the contents of a pom file
+     * @return the {@link Coordinates} declared in the pom
+     */
+    public static Coordinates readCoordinates(Reader rdr) {
+        try {
+            return Coordinates.read(rdr);
+        } catch (IOException io) {
+            throw new UncheckedIOException("Error while reading pom.xml", io);
+        } catch (XmlPullParserException e) {
+            throw new RuntimeException("Error while parsing pom.xml", e);
+        }
+    }
+
+    /**
+     * Read the given {@link Path}s as {@link Model}s concurrently, using a pool bounded by the number of available
+     * processors
+     *
+     * @param poms the paths to pom.xml files
+     * @return the maven {@link Model}s keyed by their path, in iteration order of the given paths
+     * @see #readModels(Collection, Executor)
+     */
+    public static Map<Path, Model> readModels(Collection<Path> poms) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(poms.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            return readModels(poms, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Read the given {@link Path}s as {@link Model}s, parsing them concurrently on the given {@link Executor}.
+     * <p>
+     * Every file is read even if some of them cannot be parsed. If any failed, the first failure is thrown once all
+     * files were processed, with the other failures added as suppressed exceptions.
+     *
+     * @param poms the paths to pom.xml files
+     * @param executor the executor the files are parsed on
+     * @return the maven {@link Model}s keyed by their path, in iteration order of the given paths
+     */
+    public static Map<Path, Model> readModels(Collection<Path> poms, Executor executor) {
+        List<RuntimeException> failures = new ArrayList<>();
+        Map<Path, Model> models = readModels(poms, executor, (pom, e) -> failures.add(e));
+        if (!failures.isEmpty()) {
+            RuntimeException first = failures.get(0);
+            for (int i = 1; i < failures.size(); i++) {
+                first.addSuppressed(failures.get(i));
+            }
+            throw first;
+        }
+        return models;
+    }
+
+    /**
+     * Read the given {@link Path}s as {@link Model}s, parsing them concurrently on the given {@link Executor}.
+     * <p>
+     * A file that cannot be read is reported to the error handler and left out of the result, without affecting the
+     * other files. The error handler is called on the calling thread.
+     *
+     * @param poms the paths to pom.xml files
+     * @param executor the executor the files are parsed on
+     * @param errorHandler called with the path and the error of every file that could not be read
+     * @return the maven {@link Model}s keyed by their path, in iteration order of the given paths
+     */
+    public static Map<Path, Model> readModels(Collection<Path> poms, Executor executor,
+            BiConsumer<Path, RuntimeException> errorHandler) {
+        Map<Path, CompletableFuture<Model>> futures = new LinkedHashMap<>();
+        for (Path pom : poms) {
+            futures.computeIfAbsent(pom, p -> CompletableFuture.supplyAsync(() -> readModel(p), executor));
+        }
+        Map<Path, Model> models = new LinkedHashMap<>();
+        for (Map.Entry<Path, CompletableFuture<Model>> entry : futures.entrySet()) {
+            try {
+                models.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                errorHandler.accept(entry.getKey(),
+                        cause instanceof RuntimeException ? (RuntimeException) cause : e);
+            }
+        }
+        return models;
+    }
+
+    /**
+     * Read a multi-module tree, following the modules declared in the root pom.xml recursively. Sibling modules are
+     * loaded concurrently, using a pool bounded by the number of available processors.
+     *
+     * @param rootPom a path to the root pom.xml file
+     * @return the {@link Reactor} holding every {@link Model} of the tree
+     * @see #readReactor(Path, Executor)
+     */
+    public static Reactor readReactor(Path rootPom) {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return readReactor(rootPom, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Read a multi-module tree, following the modules declared in the root pom.xml recursively. Sibling modules are
+     * loaded concurrently on the given {@link Executor}.
+     *
+     * @param rootPom a path to the root pom.xml file
+     * @param executor the executor the files are parsed on
+     * @return the {@link Reactor} holding every {@link Model} of the tree
+     * @throws IllegalStateException if a module is declared twice or if modules form a cycle
+     */
+    public static Reactor readReactor(Path rootPom, Executor executor) {
+        return Reactor.read(rootPom, executor);
+    }
+
+    /**
+     * Open the {@link Path} for editing. The file is read only once and both the {@link Model} and the JDOM
+     * {@link Document} used to write it back are created from that single read.
+     *
+     * @param pom a path to a pom.xml file
+     * @return a {@link PomHandle} on the given pom.xml file
+     */
+    public static PomHandle open(Path pom) {
+        FileTime lastModified;
+        byte[] content;
+        try {
+            // Before reading, so that a change made meanwhile is not missed when saving
+            lastModified = Files.getLastModifiedTime(pom);
+            content = Files.readAllBytes(pom);
+        } catch (IOException io) {
+            throw new UncheckedIOException("Error while reading pom.xml", io);
+        }
+        Model model = readModel(
+                new InputStreamReader(new ByteArrayInputStream(content), PomEncoding.charset(content)));
+        model.setPomFile(pom.toFile());
+        Document document = readDocument(content, pom);
+        return new PomHandle(pom, lastModified, content, model, document);
+    }
+
     /**
      * Read the {@link Path} as a {@link Model}
      *
@@ -78,8 +289,7 @@ public final class Maven {
      */
     public static Model readModel(Reader rdr) {
         try {
-            MavenXpp3Reader reader = new MavenXpp3Reader();
-            Model model = reader.read(rdr);
+            Model model = new MavenXpp3Reader().read(rdr);
             // https://github.com/fabric8-launcher/maven-model-helper/issues/44
             SortedProperties sortedProps = new SortedProperties();
             sortedProps.putAll(model.getProperties());
@@ -108,32 +318,374 @@ public final class Maven {
      * @param pom
      */
     public static void writeModel(Model model, Path pom) {
+        writeModel(model, pom, (ForkJoinPool) null);
+    }
+
+    /**
+     * Write the Model back to the provided {@link Path}, updating the top-level sections of an existing pom.xml (build,
+     * profiles, dependencies, ...) concurrently on the given {@link ForkJoinPool}. The result is the same as with
+     * {@link #writeModel(Model, Path)}, which is usually faster unless the pom.xml is very large.
+     *
+     * @param model
+     * @param pom
+     * @param pool the pool the sections are updated on, or null to update them sequentially
+     */
+    public static void writeModel(Model model, Path pom, ForkJoinPool pool) {
         if (pom.toFile().length() == 0L) {
             // Initialize an empty XML
             try (OutputStream os = Files.newOutputStream(pom)) {
-                MavenXpp3Writer writer = new MavenXpp3Writer();
-                writer.write(os, model);
+                new MavenXpp3Writer().write(os, model);
             } catch (IOException e) {
                 throw new UncheckedIOException("Could not write POM file: " + pom, e);
+            } finally {
+                ModelCache.invalidateAll(pom);
             }
         } else {
-            Document document;
-            try (InputStream is = Files.newInputStream(pom)) {
-                document = new SAXBuilder().build(is);
-            } catch (JDOMException e) {
-                throw new RuntimeException("Could not parse POM file: " + pom, e);
+            byte[] content;
+            try {
+                content = Files.readAllBytes(pom);
             } catch (IOException e) {
                 throw new UncheckedIOException("Could not read POM file: " + pom, e);
             }
-            try (OutputStream os = Files.newOutputStream(pom);
-                    OutputStreamWriter ow = new OutputStreamWriter(os)) {
-                MavenJDOMWriter writer = new MavenJDOMWriter();
-                Format format = Format.getPrettyFormat();
-                format.setLineSeparator(System.lineSeparator());
-                writer.write(model, document, ow, format);
+            writeModel(model, readDocument(content, pom), pom, pool);
+        }
+    }
+
+    /**
+     * Write the Model back to the provided {@link Path} only if the result differs from the current contents of the
+     * file. The model is serialized in memory first and, if anything changed, written to a temporary file that
+     * atomically replaces the target, so the file is never left half-written.
+     *
+     * @param model
+     * @param pom
+     * @return true if the file was written, false if it was left untouched because it was already up to date
+     */
+    public static boolean writeModelIfChanged(Model model, Path pom) {
+        byte[] original;
+        try {
+            original = Files.exists(pom) ? Files.readAllBytes(pom) : new byte[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read POM file: " + pom, e);
+        }
+        byte[] updated;
+        if (original.length == 0) {
+            updated = serialize(model);
+        } else {
+            updated = serialize(model, readDocument(original, pom));
+        }
+        return writeIfChanged(pom, original, updated);
+    }
+
+    /**
+     * Apply the Model to the text of a pom.xml, in memory. The text is updated the same way
+     * {@link #writeModel(Model, Path)} updates a file, and keeps the encoding declared by its XML declaration.
+     * <p>
+     * The text is the contents of the pom.xml, not a path to it as for {@link #readModel(String)}.
+     *
+     * @param model
+     * @param originalXml the contents of the pom.xml, or an empty text to create a new one
+     * @return the updated contents of the pom.xml
+     */
+    public static String writeModelToString(Model model, CharSequence originalXml) {
+        if (originalXml.length() == 0) {
+            StringWriter writer = new StringWriter();
+            try {
+                new MavenXpp3Writer().write(writer, model);
             } catch (IOException e) {
-                throw new UncheckedIOException("Could not write POM file: " + pom, e);
+                throw new UncheckedIOException("Could not serialize POM", e);
+            }
+            return writer.toString();
+        }
+        Charset charset = PomEncoding.charset(originalXml);
+        Document document = readDocument(new InputSource(new StringReader(originalXml.toString())), charset, "POM");
+        update(model, null, document, null);
+        PomBuffer buffer = PomBuffer.acquire();
+        try {
+            return buffer.toString(document, charset);
+        } finally {
+            PomBuffer.release(buffer);
+        }
+    }
+
+    /**
+     * Apply the Model to the contents of a pom.xml, in memory. The contents are updated the same way
+     * {@link #writeModel(Model, Path)} updates a file, and keep their declared encoding.
+     *
+     * @param model
+     * @param originalXml the contents of the pom.xml, or an empty array to create a new one
+     * @return the updated contents of the pom.xml
+     */
+    public static byte[] writeModel(Model model, byte[] originalXml) {
+        if (originalXml.length == 0) {
+            return serialize(model);
+        }
+        return serialize(model, readDocument(originalXml, "POM"));
+    }
+
+    /**
+     * Apply the Model to the contents of a pom.xml read from a stream, and write the result to another stream, in
+     * memory. The contents are updated the same way {@link #writeModel(Model, Path)} updates a file, and keep their
+     * declared encoding. Neither stream is closed.
+     *
+     * @param model
+     * @param originalXml the contents of the pom.xml, or an empty stream to create a new one
+     * @param os the stream the updated contents are written to
+     */
+    public static void writeModel(Model model, InputStream originalXml, OutputStream os) {
+        byte[] content;
+        try {
+            content = originalXml.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read POM", e);
+        }
+        if (content.length == 0) {
+            try {
+                new MavenXpp3Writer().write(os, model);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write POM", e);
+            }
+        } else {
+            writeModel(model, readDocument(content, "POM"), os);
+        }
+    }
+
+    /**
+     * Write the Model to the provided {@link OutputStream}, updating the given {@link Document}. The document is
+     * encoded with the charset declared by the pom.xml it was read from with {@link #open(Path)}, or UTF-8, and written
+     * with a single call. The stream is not closed.
+     *
+     * @param model
+     * @param document the parsed contents of the pom.xml the model was read from
+     * @param os the stream to write to
+     */
+    public static void writeModel(Model model, Document document, OutputStream os) {
+        PomBuffer buffer = PomBuffer.acquire();
+        try {
+            ByteBuffer bytes = write(buffer, model, null, document, null);
+            os.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write POM", e);
+        } finally {
+            PomBuffer.release(buffer);
+        }
+    }
+
+    /**
+     * Write the Model to the provided {@link WritableByteChannel}, updating the given {@link Document}. The document is
+     * encoded with the charset declared by the pom.xml it was read from with {@link #open(Path)}, or UTF-8, and written
+     * straight from a pooled buffer. The channel is not closed.
+     *
+     * @param model
+     * @param document the parsed contents of the pom.xml the model was read from
+     * @param channel the channel to write to
+     */
+    public static void writeModel(Model model, Document document, WritableByteChannel channel) {
+        PomBuffer buffer = PomBuffer.acquire();
+        try {
+            writeFully(write(buffer, model, null, document, null), channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write POM", e);
+        } finally {
+            PomBuffer.release(buffer);
+        }
+    }
+
+    /**
+     * Write the Model to the provided {@link Path}, updating the given {@link Document}
+     *
+     * @param model
+     * @param document the parsed contents of the pom.xml the model was read from
+     * @param pom
+     * @param pool the pool the sections are updated on, or null to update them sequentially
+     */
+    static void writeModel(Model model, Document document, Path pom, ForkJoinPool pool) {
+        PomBuffer buffer = PomBuffer.acquire();
+        try {
+            ByteBuffer bytes = write(buffer, model, null, document, pool);
+            try (FileChannel channel = FileChannel.open(pom, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(bytes, channel);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write POM file: " + pom, e);
+        } finally {
+            PomBuffer.release(buffer);
+            ModelCache.invalidateAll(pom);
+        }
+    }
+
+    /**
+     * Serialize the Model by updating the given {@link Document}
+     *
+     * @param model
+     * @param document the parsed contents of the pom.xml the model was read from
+     * @return the serialized pom.xml
+     */
+    static byte[] serialize(Model model, Document document) {
+        return serialize(model, null, document, null);
+    }
+
+    /**
+     * Serialize the Model by updating the given {@link Document}, leaving untouched the sections known to be up to
+     * date in the document
+     *
+     * @param model
+     * @param unchanged by section, whether it is up to date in the document, or null if unknown
+     * @param document the parsed contents of the pom.xml the model was read from
+     * @param pool the pool the sections are updated on, or null to update them sequentially
+     * @return the serialized pom.xml
+     * @see MavenJDOMWriter#compare(Model, Model)
+     */
+    static byte[] serialize(Model model, boolean[] unchanged, Document document, ForkJoinPool pool) {
+        PomBuffer buffer = PomBuffer.acquire();
+        try {
+            ByteBuffer encoded = write(buffer, model, unchanged, document, pool);
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return bytes;
+        } finally {
+            PomBuffer.release(buffer);
+        }
+    }
+
+    /**
+     * Replace the contents of the provided {@link Path} atomically, unless they are already equal to the given bytes
+     *
+     * @param pom
+     * @param original the current contents of the file
+     * @param updated the new contents of the file
+     * @return true if the file was written
+     */
+    static boolean writeIfChanged(Path pom, byte[] original, byte[] updated) {
+        if (Arrays.equals(original, updated)) {
+            return false;
+        }
+        Path target = pom.toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = createSibling(target);
+            Files.write(temp, updated);
+            if (Files.exists(target)) {
+                try {
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+                } catch (UnsupportedOperationException e) {
+                    // Not a POSIX file system, keep the default permissions
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write POM file: " + pom, e);
+        } finally {
+            ModelCache.invalidateAll(pom);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Best effort
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create an empty file next to the given one. Unlike {@link Files#createTempFile}, which restricts the file to its
+     * owner, the file gets the default permissions, so that a new pom.xml is as readable as with
+     * {@link #writeModel(Model, Path)}.
+     */
+    private static Path createSibling(Path target) throws IOException {
+        while (true) {
+            String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong());
+            Path sibling = target.resolveSibling("." + target.getFileName() + "." + suffix + ".tmp");
+            try {
+                return Files.createFile(sibling);
+            } catch (FileAlreadyExistsException e) {
+                // Try another name
+            }
+        }
+    }
+
+    private static byte[] serialize(Model model) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try {
+            new MavenXpp3Writer().write(os, model);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize POM", e);
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * @return the updated document, encoded into the given buffer until it is released
+     */
+    private static ByteBuffer write(PomBuffer buffer, Model model, boolean[] unchanged, Document document,
+            ForkJoinPool pool) {
+        update(model, unchanged, document, pool);
+        Object charset = document.getProperty(CHARSET);
+        return buffer.encode(document, charset instanceof Charset ? (Charset) charset : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Update the given {@link Document} with the Model, using a writer of the shared pool
+     *
+     * @param model
+     * @param unchanged by section, whether it is up to date in the document, or null if unknown
+     * @param document the parsed contents of the pom.xml the model was read from
+     * @param pool the pool the sections are updated on, or null to update them sequentially
+     * @return the elements whose own content was changed, new elements excluded
+     * @see MavenJDOMWriter#update(Model, Document)
+     */
+    static Set<Element> update(Model model, boolean[] unchanged, Document document, ForkJoinPool pool) {
+        MavenJDOMWriter jdomWriter = JDOM_WRITERS.acquire();
+        try {
+            jdomWriter.setPool(pool);
+            // Copied, as the writer clears its own set once released
+            Set<Element> modified = Collections.newSetFromMap(new IdentityHashMap<>());
+            modified.addAll(jdomWriter.update(model, unchanged, document));
+            return modified;
+        } finally {
+            // Released without any reference to the document
+            jdomWriter.reset();
+            JDOM_WRITERS.release(jdomWriter);
+        }
+    }
+
+    private static void writeFully(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static Document readDocument(byte[] content, Path pom) {
+        return readDocument(content, "POM file: " + pom);
+    }
+
+    private static Document readDocument(byte[] content, String source) {
+        return readDocument(new InputSource(new ByteArrayInputStream(content)), PomEncoding.charset(content),
+                source);
+    }
+
+    private static Document readDocument(InputSource input, Charset charset, String source) {
+        try {
+            SAXBuilder builder = SAX_BUILDERS.acquire();
+            Document document;
+            try {
+                document = builder.build(input);
+            } finally {
+                // The builder resets its handler once done, so it holds no reference to the document
+                SAX_BUILDERS.release(builder);
             }
+            document.setProperty(CHARSET, charset);
+            return document;
+        } catch (JDOMException e) {
+            throw new RuntimeException("Could not parse " + source, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + source, e);
         }
     }
 }
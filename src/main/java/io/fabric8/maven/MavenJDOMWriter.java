@@ -9,11 +9,25 @@ package io.fabric8.maven;
 
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.apache.maven.model.Activation;
 import org.apache.maven.model.ActivationFile;
@@ -22,7 +36,6 @@ import org.apache.maven.model.ActivationProperty;
 import org.apache.maven.model.Build;
 import org.apache.maven.model.BuildBase;
 import org.apache.maven.model.CiManagement;
-import org.apache.maven.model.ConfigurationContainer;
 import org.apache.maven.model.Contributor;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.DependencyManagement;
@@ -31,19 +44,14 @@ import org.apache.maven.model.Developer;
 import org.apache.maven.model.DistributionManagement;
 import org.apache.maven.model.Exclusion;
 import org.apache.maven.model.Extension;
-import org.apache.maven.model.FileSet;
 import org.apache.maven.model.IssueManagement;
 import org.apache.maven.model.License;
 import org.apache.maven.model.MailingList;
 import org.apache.maven.model.Model;
-import org.apache.maven.model.ModelBase;
 import org.apache.maven.model.Notifier;
 import org.apache.maven.model.Organization;
 import org.apache.maven.model.Parent;
-import org.apache.maven.model.PatternSet;
 import org.apache.maven.model.Plugin;
-import org.apache.maven.model.PluginConfiguration;
-import org.apache.maven.model.PluginContainer;
 import org.apache.maven.model.PluginExecution;
 import org.apache.maven.model.PluginManagement;
 import org.apache.maven.model.Prerequisites;
@@ -53,12 +61,13 @@ import org.apache.maven.model.ReportPlugin;
 import org.apache.maven.model.ReportSet;
 import org.apache.maven.model.Reporting;
 import org.apache.maven.model.Repository;
-import org.apache.maven.model.RepositoryBase;
 import org.apache.maven.model.RepositoryPolicy;
 import org.apache.maven.model.Resource;
 import org.apache.maven.model.Scm;
 import org.apache.maven.model.Site;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.jdom2.CDATA;
+import org.jdom2.Comment;
 import org.jdom2.Content;
 import org.jdom2.DefaultJDOMFactory;
 import org.jdom2.Document;
@@ -69,6 +78,15 @@ import org.jdom2.output.XMLOutputter;
 
 /**
  * Class MavenJDOMWriter.
+ * <p>
+ * Instances are not thread-safe, as they hold the state of the update in progress, but they can be reused for any
+ * number of successive updates, for instance by confining them to a thread. Separate instances can update separate
+ * documents concurrently: the descriptors and tables they share are immutable.
+ * <p>
+ * A reused instance keeps its depth stack, indentation strings and section writers from one update to the next. An
+ * update still allocates what it adds to the document: each new element comes with its own indentation text, since a
+ * JDOM content has a single parent. Reordering a list allocates an index of its entries by key, and updating the
+ * sections on a pool allocates a task per section.
  *
  * @version $Revision$ $Date$
  */
@@ -90,6 +108,404 @@ class MavenJDOMWriter {
 
     private static final String LS = System.lineSeparator();
 
+    /**
+     * Field RANKS: the order of the child elements of each element, as defined by the POM 4.0.0 schema, by name of the
+     * parent element. Elements sharing a name have their orders merged.
+     */
+    private static final Map<String, Map<String, Integer>> RANKS = new HashMap<>();
+
+    static {
+        rank("project", "modelVersion parent groupId artifactId version packaging name description url inceptionYear"
+                + " organization licenses developers contributors mailingLists prerequisites modules scm issueManagement"
+                + " ciManagement distributionManagement properties dependencyManagement dependencies repositories"
+                + " pluginRepositories build reports reporting profiles");
+        rank("profile", "id activation build modules distributionManagement properties dependencyManagement dependencies"
+                + " repositories pluginRepositories reports reporting");
+        rank("parent", "groupId artifactId version relativePath");
+        rank("organization", "name url");
+        rank("license", "name url distribution comments");
+        rank("developer contributor", "id name email url organization organizationUrl roles timezone properties");
+        rank("mailingList", "name subscribe unsubscribe post archive otherArchives");
+        rank("prerequisites", "maven");
+        rank("scm", "connection developerConnection tag url");
+        rank("issueManagement", "system url");
+        rank("ciManagement", "system url notifiers");
+        rank("notifier", "type sendOnError sendOnFailure sendOnSuccess sendOnWarning address configuration");
+        rank("distributionManagement", "repository snapshotRepository site downloadUrl relocation status");
+        rank("repository snapshotRepository pluginRepository", "uniqueVersion releases snapshots id name url layout");
+        rank("releases snapshots", "enabled updatePolicy checksumPolicy");
+        rank("site", "id name url");
+        rank("relocation", "groupId artifactId version message");
+        rank("dependencyManagement pluginManagement", "dependencies plugins");
+        rank("dependency", "groupId artifactId version type classifier scope systemPath exclusions optional");
+        rank("exclusion", "groupId artifactId");
+        rank("build", "sourceDirectory scriptSourceDirectory testSourceDirectory outputDirectory testOutputDirectory"
+                + " extensions defaultGoal resources testResources directory finalName filters pluginManagement plugins");
+        rank("extension", "groupId artifactId version");
+        rank("resource testResource", "targetPath filtering directory includes excludes");
+        rank("plugin", "groupId artifactId version extensions executions dependencies goals reportSets inherited"
+                + " configuration");
+        rank("execution", "id phase goals inherited configuration");
+        rank("reporting", "excludeDefaults outputDirectory plugins");
+        rank("reportSet", "id reports inherited configuration");
+        rank("activation", "activeByDefault jdk os property file");
+        rank("os", "name family arch version");
+        rank("property", "name value");
+        rank("file", "missing exists");
+    }
+
+    // ---------------------/
+    // - Model Descriptors -/
+    // ---------------------/
+
+    private static final ElementType<RepositoryPolicy> REPOSITORY_POLICY = new ElementType<RepositoryPolicy>()
+            .flag("enabled", RepositoryPolicy::isEnabled, true)
+            .text("updatePolicy", RepositoryPolicy::getUpdatePolicy)
+            .text("checksumPolicy", RepositoryPolicy::getChecksumPolicy);
+
+    private static final ElementType<Repository> REPOSITORY = new ElementType<Repository>()
+            .child("releases", Repository::getReleases, REPOSITORY_POLICY)
+            .child("snapshots", Repository::getSnapshots, REPOSITORY_POLICY)
+            .text("id", Repository::getId)
+            .text("name", Repository::getName)
+            .text("url", Repository::getUrl)
+            .text("layout", Repository::getLayout, "default")
+            .keyedBy(Repository::getId, el -> childText(el, "id", null));
+
+    private static final ElementType<DeploymentRepository> DEPLOYMENT_REPOSITORY = new ElementType<DeploymentRepository>()
+            .flag("uniqueVersion", DeploymentRepository::isUniqueVersion, true)
+            .text("id", DeploymentRepository::getId)
+            .text("name", DeploymentRepository::getName)
+            .text("url", DeploymentRepository::getUrl)
+            .text("layout", DeploymentRepository::getLayout, "default");
+
+    private static final ElementType<Site> SITE = new ElementType<Site>()
+            .text("id", Site::getId)
+            .text("name", Site::getName)
+            .text("url", Site::getUrl);
+
+    private static final ElementType<Relocation> RELOCATION = new ElementType<Relocation>()
+            .text("groupId", Relocation::getGroupId)
+            .text("artifactId", Relocation::getArtifactId)
+            .text("version", Relocation::getVersion)
+            .text("message", Relocation::getMessage);
+
+    private static final ElementType<DistributionManagement> DISTRIBUTION_MANAGEMENT = new ElementType<DistributionManagement>()
+            .child("repository", DistributionManagement::getRepository, DEPLOYMENT_REPOSITORY)
+            .child("snapshotRepository", DistributionManagement::getSnapshotRepository, DEPLOYMENT_REPOSITORY)
+            .child("site", DistributionManagement::getSite, SITE)
+            .text("downloadUrl", DistributionManagement::getDownloadUrl)
+            .child("relocation", DistributionManagement::getRelocation, RELOCATION)
+            .text("status", DistributionManagement::getStatus);
+
+    private static final ElementType<Exclusion> EXCLUSION = new ElementType<Exclusion>()
+            .text("artifactId", Exclusion::getArtifactId)
+            .text("groupId", Exclusion::getGroupId)
+            .keyedBy(value -> artifactKey(value.getGroupId(), value.getArtifactId()),
+                    el -> artifactKey(childText(el, "groupId", null), childText(el, "artifactId", null)));
+
+    private static final ElementType<Dependency> DEPENDENCY = new ElementType<Dependency>()
+            .text("groupId", Dependency::getGroupId)
+            .text("artifactId", Dependency::getArtifactId)
+            .text("version", Dependency::getVersion)
+            .text("type", Dependency::getType, "jar")
+            .text("classifier", Dependency::getClassifier)
+            .text("scope", Dependency::getScope)
+            .text("systemPath", Dependency::getSystemPath)
+            .children("exclusions", "exclusion", Dependency::getExclusions, EXCLUSION)
+            .flag("optional", Dependency::isOptional, false)
+            .keyedBy(MavenJDOMWriter::dependencyKey, MavenJDOMWriter::dependencyKey);
+
+    private static final ElementType<DependencyManagement> DEPENDENCY_MANAGEMENT = new ElementType<DependencyManagement>()
+            .children("dependencies", "dependency", DependencyManagement::getDependencies, DEPENDENCY);
+
+    private static final ElementType<Extension> EXTENSION = new ElementType<Extension>()
+            .text("groupId", Extension::getGroupId)
+            .text("artifactId", Extension::getArtifactId)
+            .text("version", Extension::getVersion)
+            .keyedBy(value -> artifactKey(value.getGroupId(), value.getArtifactId()),
+                    el -> artifactKey(childText(el, "groupId", null), childText(el, "artifactId", null)));
+
+    private static final ElementType<Resource> RESOURCE = new ElementType<Resource>()
+            .text("targetPath", Resource::getTargetPath)
+            .flag("filtering", Resource::isFiltering, false)
+            .text("directory", Resource::getDirectory)
+            .list("includes", "include", Resource::getIncludes)
+            .list("excludes", "exclude", Resource::getExcludes);
+
+    private static final ElementType<PluginExecution> PLUGIN_EXECUTION = new ElementType<PluginExecution>()
+            .text("id", PluginExecution::getId, "default")
+            .text("phase", PluginExecution::getPhase)
+            .list("goals", "goal", PluginExecution::getGoals)
+            .text("inherited", PluginExecution::getInherited)
+            .dom("configuration", PluginExecution::getConfiguration)
+            .keyedBy(PluginExecution::getId, el -> childText(el, "id", "default"));
+
+    private static final ElementType<Plugin> PLUGIN = new ElementType<Plugin>()
+            .text("groupId", Plugin::getGroupId, "org.apache.maven.plugins")
+            .text("artifactId", Plugin::getArtifactId)
+            .text("version", Plugin::getVersion)
+            .flag("extensions", Plugin::isExtensions, false)
+            .children("executions", "execution", Plugin::getExecutions, PLUGIN_EXECUTION)
+            .children("dependencies", "dependency", Plugin::getDependencies, DEPENDENCY)
+            .dom("goals", Plugin::getGoals)
+            .text("inherited", Plugin::getInherited)
+            .dom("configuration", Plugin::getConfiguration)
+            .keyedBy(value -> artifactKey(value.getGroupId(), value.getArtifactId()),
+                    el -> artifactKey(childText(el, "groupId", "org.apache.maven.plugins"),
+                            childText(el, "artifactId", null)));
+
+    private static final ElementType<PluginManagement> PLUGIN_MANAGEMENT = new ElementType<PluginManagement>()
+            .children("plugins", "plugin", PluginManagement::getPlugins, PLUGIN);
+
+    private static final ElementType<Build> BUILD = new ElementType<Build>()
+            .text("sourceDirectory", Build::getSourceDirectory)
+            .text("scriptSourceDirectory", Build::getScriptSourceDirectory)
+            .text("testSourceDirectory", Build::getTestSourceDirectory)
+            .text("outputDirectory", Build::getOutputDirectory)
+            .text("testOutputDirectory", Build::getTestOutputDirectory)
+            .children("extensions", "extension", Build::getExtensions, EXTENSION)
+            .text("defaultGoal", Build::getDefaultGoal)
+            .children("resources", "resource", Build::getResources, RESOURCE)
+            .children("testResources", "testResource", Build::getTestResources, RESOURCE)
+            .text("directory", Build::getDirectory)
+            .text("finalName", Build::getFinalName)
+            .list("filters", "filter", Build::getFilters)
+            .child("pluginManagement", Build::getPluginManagement, PLUGIN_MANAGEMENT)
+            .children("plugins", "plugin", Build::getPlugins, PLUGIN);
+
+    private static final ElementType<BuildBase> BUILD_BASE = new ElementType<BuildBase>()
+            .text("defaultGoal", BuildBase::getDefaultGoal)
+            .children("resources", "resource", BuildBase::getResources, RESOURCE)
+            .children("testResources", "testResource", BuildBase::getTestResources, RESOURCE)
+            .text("directory", BuildBase::getDirectory)
+            .text("finalName", BuildBase::getFinalName)
+            .list("filters", "filter", BuildBase::getFilters)
+            .child("pluginManagement", BuildBase::getPluginManagement, PLUGIN_MANAGEMENT)
+            .children("plugins", "plugin", BuildBase::getPlugins, PLUGIN);
+
+    private static final ElementType<ReportSet> REPORT_SET = new ElementType<ReportSet>()
+            .text("id", ReportSet::getId, "default")
+            .dom("configuration", ReportSet::getConfiguration)
+            .text("inherited", ReportSet::getInherited)
+            .list("reports", "report", ReportSet::getReports)
+            .keyedBy(ReportSet::getId, el -> childText(el, "id", "default"));
+
+    private static final ElementType<ReportPlugin> REPORT_PLUGIN = new ElementType<ReportPlugin>()
+            .text("groupId", ReportPlugin::getGroupId, "org.apache.maven.plugins")
+            .text("artifactId", ReportPlugin::getArtifactId)
+            .text("version", ReportPlugin::getVersion)
+            .text("inherited", ReportPlugin::getInherited)
+            .dom("configuration", ReportPlugin::getConfiguration)
+            .children("reportSets", "reportSet", ReportPlugin::getReportSets, REPORT_SET)
+            .keyedBy(value -> artifactKey(value.getGroupId(), value.getArtifactId()),
+                    el -> artifactKey(childText(el, "groupId", "org.apache.maven.plugins"),
+                            childText(el, "artifactId", null)));
+
+    private static final ElementType<Reporting> REPORTING = new ElementType<Reporting>()
+            .flag("excludeDefaults", Reporting::isExcludeDefaults, false)
+            .text("outputDirectory", Reporting::getOutputDirectory)
+            .children("plugins", "plugin", Reporting::getPlugins, REPORT_PLUGIN);
+
+    private static final ElementType<ActivationOS> ACTIVATION_OS = new ElementType<ActivationOS>()
+            .text("name", ActivationOS::getName)
+            .text("family", ActivationOS::getFamily)
+            .text("arch", ActivationOS::getArch)
+            .text("version", ActivationOS::getVersion);
+
+    private static final ElementType<ActivationProperty> ACTIVATION_PROPERTY = new ElementType<ActivationProperty>()
+            .text("name", ActivationProperty::getName)
+            .text("value", ActivationProperty::getValue);
+
+    private static final ElementType<ActivationFile> ACTIVATION_FILE = new ElementType<ActivationFile>()
+            .text("missing", ActivationFile::getMissing)
+            .text("exists", ActivationFile::getExists);
+
+    private static final ElementType<Activation> ACTIVATION = new ElementType<Activation>()
+            .flag("activeByDefault", Activation::isActiveByDefault, false)
+            .text("jdk", Activation::getJdk)
+            .child("os", Activation::getOs, ACTIVATION_OS)
+            .child("property", Activation::getProperty, ACTIVATION_PROPERTY)
+            .child("file", Activation::getFile, ACTIVATION_FILE);
+
+    private static final ElementType<Profile> PROFILE = new ElementType<Profile>()
+            .text("id", Profile::getId)
+            .child("activation", Profile::getActivation, ACTIVATION)
+            .child("build", Profile::getBuild, BUILD_BASE)
+            .list("modules", "module", Profile::getModules)
+            .children("repositories", "repository", Profile::getRepositories, REPOSITORY)
+            .children("pluginRepositories", "pluginRepository", Profile::getPluginRepositories, REPOSITORY)
+            .children("dependencies", "dependency", Profile::getDependencies, DEPENDENCY)
+            .dom("reports", Profile::getReports)
+            .child("reporting", Profile::getReporting, REPORTING)
+            .child("dependencyManagement", Profile::getDependencyManagement, DEPENDENCY_MANAGEMENT)
+            .child("distributionManagement", Profile::getDistributionManagement, DISTRIBUTION_MANAGEMENT)
+            .properties("properties", Profile::getProperties)
+            .keyedBy(Profile::getId, el -> childText(el, "id", "default"));
+
+    private static final ElementType<Notifier> NOTIFIER = new ElementType<Notifier>()
+            .text("type", Notifier::getType, "mail")
+            .flag("sendOnError", Notifier::isSendOnError, true)
+            .flag("sendOnFailure", Notifier::isSendOnFailure, true)
+            .flag("sendOnSuccess", Notifier::isSendOnSuccess, true)
+            .flag("sendOnWarning", Notifier::isSendOnWarning, true)
+            .text("address", Notifier::getAddress)
+            .properties("configuration", Notifier::getConfiguration);
+
+    private static final ElementType<CiManagement> CI_MANAGEMENT = new ElementType<CiManagement>()
+            .text("system", CiManagement::getSystem)
+            .text("url", CiManagement::getUrl)
+            .children("notifiers", "notifier", CiManagement::getNotifiers, NOTIFIER);
+
+    private static final ElementType<IssueManagement> ISSUE_MANAGEMENT = new ElementType<IssueManagement>()
+            .text("system", IssueManagement::getSystem)
+            .text("url", IssueManagement::getUrl);
+
+    private static final ElementType<Prerequisites> PREREQUISITES = new ElementType<Prerequisites>()
+            .text("maven", Prerequisites::getMaven, "2.0");
+
+    private static final ElementType<Scm> SCM = new ElementType<Scm>()
+            .text("connection", Scm::getConnection)
+            .text("developerConnection", Scm::getDeveloperConnection)
+            .text("tag", Scm::getTag, "HEAD")
+            .text("url", Scm::getUrl);
+
+    private static final ElementType<Organization> ORGANIZATION = new ElementType<Organization>()
+            .text("name", Organization::getName)
+            .text("url", Organization::getUrl);
+
+    private static final ElementType<Parent> PARENT = new ElementType<Parent>()
+            .text("artifactId", Parent::getArtifactId)
+            .text("groupId", Parent::getGroupId)
+            .text("version", Parent::getVersion)
+            .text("relativePath", Parent::getRelativePath, "../pom.xml");
+
+    private static final ElementType<License> LICENSE = new ElementType<License>()
+            .text("name", License::getName)
+            .text("url", License::getUrl)
+            .text("distribution", License::getDistribution)
+            .text("comments", License::getComments);
+
+    private static final ElementType<MailingList> MAILING_LIST = new ElementType<MailingList>()
+            .text("name", MailingList::getName)
+            .text("subscribe", MailingList::getSubscribe)
+            .text("unsubscribe", MailingList::getUnsubscribe)
+            .text("post", MailingList::getPost)
+            .text("archive", MailingList::getArchive)
+            .list("otherArchives", "otherArchive", MailingList::getOtherArchives);
+
+    private static final ElementType<Contributor> CONTRIBUTOR = new ElementType<Contributor>()
+            .text("name", Contributor::getName)
+            .text("email", Contributor::getEmail)
+            .text("url", Contributor::getUrl)
+            .text("organization", Contributor::getOrganization)
+            .text("organizationUrl", Contributor::getOrganizationUrl)
+            .list("roles", "role", Contributor::getRoles)
+            .text("timezone", Contributor::getTimezone)
+            .properties("properties", Contributor::getProperties);
+
+    private static final ElementType<Developer> DEVELOPER = new ElementType<Developer>()
+            .text("id", Developer::getId)
+            .text("name", Developer::getName)
+            .text("email", Developer::getEmail)
+            .text("url", Developer::getUrl)
+            .text("organization", Developer::getOrganization)
+            .text("organizationUrl", Developer::getOrganizationUrl)
+            .list("roles", "role", Developer::getRoles)
+            .text("timezone", Developer::getTimezone)
+            .properties("properties", Developer::getProperties);
+
+    private static final ElementType<Model> MODEL = new ElementType<Model>()
+            .child("parent", Model::getParent, PARENT)
+            .text("modelVersion", Model::getModelVersion)
+            .text("groupId", Model::getGroupId)
+            .text("artifactId", Model::getArtifactId)
+            .text("packaging", Model::getPackaging, "jar")
+            .text("name", Model::getName)
+            .text("version", Model::getVersion)
+            .text("description", Model::getDescription)
+            .text("url", Model::getUrl)
+            .child("prerequisites", Model::getPrerequisites, PREREQUISITES)
+            .child("issueManagement", Model::getIssueManagement, ISSUE_MANAGEMENT)
+            .child("ciManagement", Model::getCiManagement, CI_MANAGEMENT)
+            .text("inceptionYear", Model::getInceptionYear)
+            .children("mailingLists", "mailingList", Model::getMailingLists, MAILING_LIST)
+            .children("developers", "developer", Model::getDevelopers, DEVELOPER)
+            .children("contributors", "contributor", Model::getContributors, CONTRIBUTOR)
+            .children("licenses", "license", Model::getLicenses, LICENSE)
+            .child("scm", Model::getScm, SCM)
+            .child("organization", Model::getOrganization, ORGANIZATION)
+            .child("build", Model::getBuild, BUILD)
+            .children("profiles", "profile", Model::getProfiles, PROFILE)
+            .list("modules", "module", Model::getModules)
+            .children("repositories", "repository", Model::getRepositories, REPOSITORY)
+            .children("pluginRepositories", "pluginRepository", Model::getPluginRepositories, REPOSITORY)
+            .children("dependencies", "dependency", Model::getDependencies, DEPENDENCY)
+            .dom("reports", Model::getReports)
+            .child("reporting", Model::getReporting, REPORTING)
+            .child("dependencyManagement", Model::getDependencyManagement, DEPENDENCY_MANAGEMENT)
+            .child("distributionManagement", Model::getDistributionManagement, DISTRIBUTION_MANAGEMENT)
+            .properties("properties", Model::getProperties);
+
+    /**
+     * Field MAX_RETAINED_SIZE: the size above which the tables of the last update are not kept for the next one.
+     */
+    private static final int MAX_RETAINED_SIZE = 256;
+
+    /**
+     * Field modified: the elements whose own content was changed by the last update.
+     */
+    private Set<Element> modified = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Field pool: the pool the top-level sections are updated on, or null to update them sequentially.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Field cursors: where the last insertion in each parent left the scan for the next one. This is a resume point,
+     * not an index of the children: it only saves the scan of insertions made in document order, such as appends.
+     */
+    private Map<Element, Cursor> cursors = new IdentityHashMap<>();
+
+    /**
+     * Field counters: the number of children visited so far by the update of the element at each depth, as a stack
+     * reused by every update.
+     */
+    private int[] counters = new int[16];
+
+    /**
+     * Field indents: the default indentation of the elements at each depth.
+     */
+    private String[] indents = new String[16];
+
+    /**
+     * Fields nestedText, nestedOuterText, nestedIndent and nestedClosing: the last indentation derived from the
+     * whitespace preceding a parent and its own parent, as the children inserted in a row share them.
+     */
+    private String nestedText;
+
+    private String nestedOuterText;
+
+    private String nestedIndent;
+
+    private String nestedClosing;
+
+    /**
+     * Field visits: the number of composite elements the last update descended into.
+     */
+    private int visits;
+
+    /**
+     * Field reads: the number of children insertAtPreferredLocation read from their parents during the last update.
+     */
+    private long reads;
+
+    /**
+     * Field sectionWriters: the writers the top-level sections are updated with on the pool, one per section.
+     */
+    private final List<MavenJDOMWriter> sectionWriters = new ArrayList<>();
+
     // ----------------/
     // - Constructors -/
     // ----------------/
@@ -121,69 +537,205 @@ class MavenJDOMWriter {
      * @param document
      */
     public void write(Model project, Document document, Writer writer, Format jdomFormat) throws java.io.IOException {
-        updateModel(project, "project", new Counter(0), document.getRootElement());
+        update(project, document);
 
         XMLOutputter outputter = new XMLOutputter();
         outputter.setFormat(jdomFormat);
         outputter.output(document, writer);
     } // -- void write(Model, Document, Writer, Format)
 
+    /**
+     * Method update: update the document with the model, without writing it.
+     *
+     * @param project
+     * @param document
+     * @return the elements whose own content was changed (text, added or removed children), new elements excluded
+     */
+    public Set<Element> update(Model project, Document document) {
+        return update(project, (boolean[]) null, document);
+    } // -- Set<Element> update(Model, Document)
+
+    /**
+     * Method update: update the document with the model, leaving untouched the top-level sections that are equal in
+     * the baseline and in the model.
+     *
+     * @param project
+     * @param baseline a copy of the model the document is known to hold, or null to update every section
+     * @param document
+     * @return the elements whose own content was changed (text, added or removed children), new elements excluded
+     * @see #compare(Model, Model)
+     */
+    public Set<Element> update(Model project, Model baseline, Document document) {
+        return update(project, baseline == null ? null : compare(project, baseline), document);
+    } // -- Set<Element> update(Model, Model, Document)
+
+    /**
+     * Method update: update the document with the model, leaving untouched the top-level sections known to be up to
+     * date.
+     *
+     * @param project
+     * @param unchanged the result of {@link #compare(Model, Model)}, or null to update every section
+     * @param document
+     * @return the elements whose own content was changed (text, added or removed children), new elements excluded
+     */
+    Set<Element> update(Model project, boolean[] unchanged, Document document) {
+        modified.clear();
+        cursors.clear();
+        visits = 0;
+        reads = 0;
+        updateFields(MODEL, project, unchanged, enter(0), document.getRootElement());
+        return modified;
+    } // -- Set<Element> update(Model, boolean[], Document)
+
+    /**
+     * Method compare: compare the composite top-level sections of a model (parent, build, dependencies, properties...)
+     * with the ones of a copy of the model the document holds, with {@link Models#deepEquals(Object, Object)}. The
+     * comparison only walks the models in memory, so that an update does not visit the elements of the sections that
+     * are equal. Simple top-level values are not compared, since checking them costs as much as updating them.
+     *
+     * @param project
+     * @param baseline
+     * @return by index of field, whether the section is equal in both models, always true for simple values
+     */
+    static boolean[] compare(Model project, Model baseline) {
+        boolean[] unchanged = new boolean[MODEL.fields.size()];
+        for (int i = 0; i < unchanged.length; i++) {
+            Field field = MODEL.fields.get(i);
+            unchanged[i] = (field.kind == Kind.TEXT)
+                    || Models.deepEquals(field.getter.apply(baseline), field.getter.apply(project));
+        }
+        return unchanged;
+    } // -- boolean[] compare(Model, Model)
+
+    /**
+     * Method isUnchanged.
+     *
+     * @param unchanged the result of {@link #compare(Model, Model)}
+     * @return true if every composite top-level section is equal in both models
+     */
+    static boolean isUnchanged(boolean[] unchanged) {
+        for (boolean section : unchanged) {
+            if (!section) {
+                return false;
+            }
+        }
+        return true;
+    } // -- boolean isUnchanged(boolean[])
+
+    /**
+     * Method getVisitCount.
+     *
+     * @return the number of composite elements (sections, dependencies, plugins...) the last update descended into
+     */
+    int getVisitCount() {
+        return visits;
+    } // -- int getVisitCount()
+
+    /**
+     * Method getReadCount.
+     *
+     * @return the number of children the insertions of the last update read while looking for their location
+     */
+    long getReadCount() {
+        return reads;
+    } // -- long getReadCount()
+
+    /**
+     * Method reset: release the references to the last updated document, so that a reused writer does not retain it.
+     * The tables grown by a large update are dropped rather than cleared, as clearing them keeps their capacity.
+     */
+    void reset() {
+        if (modified.size() > MAX_RETAINED_SIZE) {
+            modified = Collections.newSetFromMap(new IdentityHashMap<>());
+        } else {
+            modified.clear();
+        }
+        if (cursors.size() > MAX_RETAINED_SIZE) {
+            cursors = new IdentityHashMap<>();
+        } else {
+            cursors.clear();
+        }
+        pool = null;
+        for (MavenJDOMWriter writer : sectionWriters) {
+            writer.reset();
+        }
+    } // -- void reset()
+
+    /**
+     * Method setPool: update the top-level sections of the document concurrently. The elements of the sections are
+     * first added, removed and updated on the calling thread, then the contents of every section are updated on the
+     * pool. The result is the same as when updating them sequentially. If a section fails, the first failure is
+     * thrown once the other sections were updated.
+     *
+     * @param pool the pool the sections are updated on, or null (the default) to update them sequentially
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    } // -- void setPool(ForkJoinPool)
+
     // -----------/
     // - Methods -/
     // -----------/
 
     /**
-     * Method findAndReplaceProperties.
+     * Method replaceProperties: update the children of a properties element, matching them by name.
      *
-     * @param counter
+     * @param depth
+     * @param element
      * @param props
-     * @param name
-     * @param parent
      */
     @SuppressWarnings("unchecked")
-    protected Element findAndReplaceProperties(Counter counter, Element parent, String name, Map props) {
-        boolean shouldExist = (props != null) && !props.isEmpty();
-        Element element = updateElement(counter, parent, name, shouldExist);
-        if (shouldExist) {
-            Iterator it = props.keySet().iterator();
-            Counter innerCounter = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                String key = (String) it.next();
-                if ((element.getChild(key, parent.getNamespace()) == null)) {
-                    // If it is a new entry, append instead of messing with the existing contents
-                    Element newProperty = factory.element(key, parent.getNamespace()).setText((String) props.get(key));
-                    element.addContent(newProperty);
-                } else {
-                    findAndReplaceSimpleElement(innerCounter, element, key, (String) props.get(key), null);
-                }
+    protected void replaceProperties(int depth, Element element, Map props) {
+        // Index the existing properties once: the first element of each name is the one updated
+        List<Element> children = element.getChildren();
+        Map<String, Element> existing = new HashMap<>(children.size() * 2);
+        for (Element child : children) {
+            if (child.getNamespace().equals(element.getNamespace())) {
+                existing.putIfAbsent(child.getName(), child);
+            }
+        }
+        int childCount = children.size();
+        Iterator it = props.keySet().iterator();
+        while (it.hasNext()) {
+            String key = (String) it.next();
+            String value = (String) props.get(key);
+            Element property = existing.get(key);
+            if (property == null) {
+                // If it is a new entry, append instead of messing with the existing contents
+                Element newProperty = factory.element(key, element.getNamespace()).setText(value);
+                insertAtPreferredLocation(element, newProperty, depth + 1, childCount);
+                childCount++;
+            } else if ((value != null) && (value.trim().length() > 0)) {
+                replaceText(property, value);
+            } else {
+                removeElement(element, property);
+                childCount--;
             }
+        }
 
-            // Remove properties that no longer exist
-            it = element.getChildren().iterator();
-            while (it.hasNext()) {
-                Element elem = (Element) it.next();
-                String key = elem.getName();
-                if (!props.containsKey(key)) {
-                    it.remove();
-                }
+        // Remove properties that no longer exist
+        Set<Element> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Element child : children) {
+            if (!props.containsKey(child.getName())) {
+                stale.add(child);
             }
         }
-        return element;
-    } // -- Element findAndReplaceProperties(Counter, Element, String, Map)
+        removeElements(element, stale);
+    } // -- void replaceProperties(int, Element, Map)
 
     /**
      * Method findAndReplaceSimpleElement.
      *
-     * @param counter
+     * @param depth
      * @param defaultValue
      * @param text
      * @param name
      * @param parent
      */
-    protected Element findAndReplaceSimpleElement(Counter counter, Element parent, String name, String text,
+    protected Element findAndReplaceSimpleElement(int depth, Element parent, String name, String text,
             String defaultValue) {
         if ((defaultValue != null) && defaultValue.equals(text)) {
-            Element element = parent.getChild(name, parent.getNamespace());
+            Element element = childElement(parent, name);
             // if exist and is default value or if doesn't exist.. just keep the
             // way it is..
             if (element == null || defaultValue.equals(element.getText())) {
@@ -192,1867 +744,979 @@ class MavenJDOMWriter {
         }
 
         boolean shouldExist = (text != null) && (text.trim().length() > 0);
-        Element element = updateElement(counter, parent, name, shouldExist);
+        Element element = updateElement(depth, parent, name, shouldExist);
         if (shouldExist) {
-            element.setText(text);
+            replaceText(element, text);
         }
         return element;
-    } // -- Element findAndReplaceSimpleElement(Counter, Element, String,
+    } // -- Element findAndReplaceSimpleElement(int, Element, String,
       // String, String)
 
     /**
-     * Method findAndReplaceSimpleLists.
-     *
-     * @param counter
-     * @param childName
-     * @param parentName
-     * @param list
-     * @param parent
-     */
-    protected Element findAndReplaceSimpleLists(Counter counter, Element parent, Collection list,
-            String parentName, String childName) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentName, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childName, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                String value = (String) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childName, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                el.setText(value);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
-        }
-        return element;
-    } // -- Element findAndReplaceSimpleLists(Counter, Element,
-      // java.util.Collection, String,
-      // String)
-
-    /**
-     * Method findAndReplaceXpp3DOM.
-     *
-     * @param counter
-     * @param dom
-     * @param name
-     * @param parent
-     */
-    protected Element findAndReplaceXpp3DOM(Counter counter, Element parent, String name, Xpp3Dom dom) {
-        boolean shouldExist = (dom != null) && ((dom.getChildCount() > 0) || (dom.getValue() != null));
-        Element element = updateElement(counter, parent, name, shouldExist);
-        if (shouldExist) {
-            replaceXpp3DOM(element, dom, new Counter(counter.getDepth() + 1));
-        }
-        return element;
-    } // -- Element findAndReplaceXpp3DOM(Counter, Element, String, Xpp3Dom)
-
-    /**
-     * Method insertAtPreferredLocation.
+     * Method insertAtPreferredLocation: insert a child before the child element at the given position, or after the
+     * last one. The content of the parent is scanned up to that position, resuming from the cursor of the previous
+     * insertion when it is not past the position. Successive insertions in document order, such as appending n
+     * entries, cost O(n) in total. An insertion before the cursor scans from the first child again, so insertions in
+     * any other order cost O(n) each.
      *
      * @param parent
-     * @param counter
+     * @param depth
      * @param child
      */
-    protected void insertAtPreferredLocation(Element parent, Element child, Counter counter) {
+    protected void insertAtPreferredLocation(Element parent, Element child, int depth, int position) {
         int contentIndex = 0;
         int elementCounter = 0;
-        Iterator it = parent.getContent().iterator();
         Text lastText = null;
         int offset = 0;
-        while (it.hasNext() && (elementCounter <= counter.getCurrentIndex())) {
-            Object next = it.next();
+        int size = parent.getContentSize();
+        // Resume the scan after the last insertion, as long as it would have gone past it
+        Cursor cursor = cursors.get(parent);
+        if ((cursor != null) && (cursor.contentSize == size)
+                && (cursor.elementCounter <= position + 1)) {
+            contentIndex = cursor.contentIndex;
+            elementCounter = cursor.elementCounter;
+            lastText = cursor.lastText;
+        }
+        int index = contentIndex;
+        int start = index;
+        while ((index < size) && (elementCounter <= position)) {
+            Content next = parent.getContent(index++);
             offset = offset + 1;
             if (next instanceof Element) {
                 elementCounter = elementCounter + 1;
                 contentIndex = contentIndex + offset;
                 offset = 0;
             }
-            if ((next instanceof Text) && it.hasNext()) {
+            if ((next instanceof Text) && (index < size)) {
                 lastText = (Text) next;
             }
         }
-        if ((lastText != null) && (lastText.getTextTrim().length() == 0)) {
+        reads += index - start;
+        String closing = null;
+        if ((lastText != null) && isBlank(lastText.getText())) {
+            // The indentation of the previous child is copied: a content has a single parent
             lastText = (Text) lastText.clone();
+        } else if (nest(parent)) {
+            // Indent like the parent is indented relative to its own parent
+            lastText = factory.text(nestedIndent);
+            closing = nestedClosing;
         } else {
-            StringBuilder starter = new StringBuilder(lineSeparator);
-            for (int i = 0; i < counter.getDepth(); i++) {
-                starter.append("  ");
-            }
-            lastText = factory.text(starter.toString());
+            lastText = factory.text(indent(depth));
+            closing = indent(depth - 1);
         }
         if (parent.getContentSize() == 0) {
-            Text finalText = (Text) lastText.clone();
-            finalText.setText(finalText.getText().substring(0, finalText.getText().length() - "  ".length()));
-            parent.addContent(contentIndex, finalText);
+            parent.addContent(contentIndex, factory.text(closing));
         }
         parent.addContent(contentIndex, child);
         parent.addContent(contentIndex, lastText);
-    } // -- void insertAtPreferredLocation(Element, Element, Counter)
+        modified.add(parent);
+        if (cursor == null) {
+            cursors.put(parent, new Cursor(elementCounter + 1, contentIndex + 2, lastText, parent.getContentSize()));
+        } else {
+            cursor.set(elementCounter + 1, contentIndex + 2, lastText, parent.getContentSize());
+        }
+    } // -- void insertAtPreferredLocation(Element, Element, int, int)
 
     /**
-     * Method iterateContributor.
+     * Method nest: derive the indentation of the children of an element from the way it is indented relative to its
+     * own parent, into nestedIndent, and the indentation of its closing tag, into nestedClosing. The last result is
+     * kept for the next children inserted in an element indented the same way.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
      * @param parent
+     * @return false if the element is the root or is not indented deeper than its parent on a line of its own
      */
-    protected void iterateContributor(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Contributor value = (Contributor) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateContributor(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
+    private boolean nest(Element parent) {
+        if (parent.isRootElement()) {
+            return false;
+        }
+        String text = whitespaceBefore(parent);
+        Element outer = parent.getParentElement();
+        String outerText = outer.isRootElement() ? lineSeparator : whitespaceBefore(outer);
+        if ((text == null) || (outerText == null)) {
+            return false;
+        }
+        if (!text.equals(nestedText) || !outerText.equals(nestedOuterText)) {
+            int newLine = text.lastIndexOf('\n');
+            int outerNewLine = outerText.lastIndexOf('\n');
+            int outerLength = outerText.length() - outerNewLine;
+            if ((text.length() - newLine > outerLength)
+                    && text.regionMatches(newLine, outerText, outerNewLine, outerLength)) {
+                nestedClosing = text.substring(newLine);
+                nestedIndent = nestedClosing + text.substring(newLine + outerLength);
+            } else {
+                nestedClosing = null;
+                nestedIndent = null;
             }
+            nestedText = text;
+            nestedOuterText = outerText;
         }
-    } // -- void iterateContributor(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        return nestedIndent != null;
+    } // -- boolean nest(Element)
 
     /**
-     * Method iterateDependency.
+     * Method whitespaceBefore: the text preceding an element, if made of whitespace ending a line.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
-     * @param parent
+     * @param element
+     * @return the text, or null if the element is not preceded by a line of whitespace
      */
-    protected void iterateDependency(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Dependency value = (Dependency) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateDependency(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
+    private static String whitespaceBefore(Element element) {
+        Element parent = element.getParentElement();
+        if (parent == null) {
+            return null;
+        }
+        int index = parent.indexOf(element);
+        if ((index > 0) && isWhitespace(parent.getContent(index - 1))) {
+            String text = ((Text) parent.getContent(index - 1)).getText();
+            if (text.indexOf('\n') >= 0) {
+                return text;
             }
         }
-    } // -- void iterateDependency(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        return null;
+    } // -- String whitespaceBefore(Element)
 
     /**
-     * Method iterateDeveloper.
+     * Method indent: the default indentation of the elements at the given depth, two spaces per level.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
-     * @param parent
+     * @param depth
      */
-    protected void iterateDeveloper(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Developer value = (Developer) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateDeveloper(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
+    private String indent(int depth) {
+        int level = Math.max(depth, 0);
+        if (level >= indents.length) {
+            indents = Arrays.copyOf(indents, level * 2);
         }
-    } // -- void iterateDeveloper(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        String indent = indents[level];
+        if (indent == null) {
+            indent = lineSeparator + "  ".repeat(level);
+            indents[level] = indent;
+        }
+        return indent;
+    } // -- String indent(int)
 
     /**
-     * Method iterateExclusion.
+     * Method enter: start counting the children visited by the update of an element at the given depth.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
-     * @param parent
+     * @param depth
+     * @return the depth
      */
-    protected void iterateExclusion(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Exclusion value = (Exclusion) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateExclusion(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
+    private int enter(int depth) {
+        if (depth >= counters.length) {
+            counters = Arrays.copyOf(counters, depth * 2);
         }
-    } // -- void iterateExclusion(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        counters[depth] = 0;
+        return depth;
+    } // -- int enter(int)
 
     /**
-     * Method iterateExtension.
+     * Method replaceXpp3DOM.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
      * @param parent
+     * @param depth
+     * @param parentDom
      */
-    protected void iterateExtension(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
+    @SuppressWarnings("unchecked")
+    protected void replaceXpp3DOM(final Element parent, final Xpp3Dom parentDom, final int depth) {
+        if (parentDom.getChildCount() > 0) {
+            Xpp3Dom[] childs = parentDom.getChildren();
+            // The pending children of each name, in order: repeated names are matched in order
+            Map<String, Deque<Integer>> pending = new HashMap<>();
+            for (int i = 0; i < childs.length; i++) {
+                pending.computeIfAbsent(childs[i].getName(), n -> new ArrayDeque<>()).add(i);
             }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Extension value = (Extension) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
+            boolean[] matched = new boolean[childs.length];
+
+            for (Element elem : new ArrayList<>(parent.getChildren())) {
+                Deque<Integer> indices = pending.get(elem.getName());
+                if ((indices != null) && !indices.isEmpty()) {
+                    int index = indices.poll();
+                    matched[index] = true;
+                    replaceXpp3DOM(elem, childs[index], enter(depth + 1));
+                    counters[depth]++;
                 } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
+                    removeElement(parent, elem);
                 }
-                updateExtension(value, childTag, innerCount, el);
-                innerCount.increaseCount();
             }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
+
+            for (int i = 0; i < childs.length; i++) {
+                if (matched[i]) {
+                    continue;
                 }
+                Xpp3Dom dm = childs[i];
+                Element elem = factory.element(dm.getName(), parent.getNamespace());
+                for (String attName : dm.getAttributeNames()) {
+                    elem.setAttribute(attName, dm.getAttribute(attName));
+                }
+                insertAtPreferredLocation(parent, elem, depth, counters[depth]);
+                counters[depth]++;
+                replaceXpp3DOM(elem, dm, enter(depth + 1));
             }
+        } else if (parentDom.getValue() != null) {
+            replaceText(parent, parentDom.getValue());
         }
-    } // -- void iterateExtension(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+    } // --
+      // void
+      // replaceXpp3DOM(Element,
+      // Xpp3Dom,
+      // int)
 
     /**
-     * Method iterateLicense.
+     * Method updateElement: find the child element of the given name, and add or remove it as needed. A single scan
+     * of the children finds the element or, if it is missing, the position it is inserted at: right after the last
+     * child that comes before it in the schema order. Unknown children take the rank of the previous one. Children out
+     * of the schema order are tolerated, the new child simply follows the last one ranked before it. Children of
+     * elements without a known order are inserted at the position given by the counters. Elements with a known order
+     * only have the few children the schema allows, so the scan is short.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
+     * @param depth
+     * @param shouldExist
+     * @param name
      * @param parent
      */
-    protected void iterateLicense(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                License value = (License) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
+    protected Element updateElement(int depth, Element parent, String name, boolean shouldExist) {
+        Map<String, Integer> ranks = RANKS.get(parent.getName());
+        Integer rank = (ranks == null) ? null : ranks.get(name);
+        String uri = parent.getNamespaceURI();
+        Element element = null;
+        Element previous = null;
+        boolean ranked = false;
+        int current = -1;
+        for (int i = 0, size = parent.getContentSize(); (i < size) && (element == null); i++) {
+            Content content = parent.getContent(i);
+            if (content instanceof Element) {
+                Element child = (Element) content;
+                if (child.getName().equals(name) && child.getNamespaceURI().equals(uri)) {
+                    element = child;
+                } else if (rank != null) {
+                    ranked = true;
+                    Integer childRank = ranks.get(child.getName());
+                    if (childRank != null) {
+                        current = childRank;
+                    }
+                    if (current <= rank) {
+                        previous = child;
                     }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
                 }
-                updateLicense(value, childTag, innerCount, el);
-                innerCount.increaseCount();
             }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
+        }
+        if ((element != null) && shouldExist) {
+            counters[depth]++;
+        }
+        if ((element == null) && shouldExist) {
+            element = factory.element(name, parent.getNamespace());
+            if (ranked) {
+                insertAfter(parent, element, previous, depth);
+            } else {
+                insertAtPreferredLocation(parent, element, depth, counters[depth]);
             }
+            counters[depth]++;
         }
-    } // -- void iterateLicense(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        if (!shouldExist && (element != null)) {
+            removeElement(parent, element);
+        }
+        return element;
+    } // -- Element updateElement(int, Element, String, boolean)
 
     /**
-     * Method iterateMailingList.
+     * Method rank: register the order of the children of the given elements.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
-     * @param parent
+     * @param parents the names of the parent elements, separated by spaces
+     * @param children the names of the children, in order, separated by spaces
      */
-    protected void iterateMailingList(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                MailingList value = (MailingList) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateMailingList(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
+    private static void rank(String parents, String children) {
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String child : children.split(" ")) {
+            ranks.put(child, ranks.size());
+        }
+        for (String parent : parents.split(" ")) {
+            RANKS.put(parent, ranks);
         }
-    } // -- void iterateMailingList(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+    } // -- void rank(String, String)
 
     /**
-     * Method iterateNotifier.
+     * Remove a child element, together with the whitespace indenting it.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
      * @param parent
+     * @param element
      */
-    protected void iterateNotifier(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Notifier value = (Notifier) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateNotifier(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
+    protected void removeElement(Element parent, Element element) {
+        int index = parent.indexOf(element);
+        if (index > 0) {
+            Content previous = parent.getContent(index - 1);
+            if (previous instanceof Text) {
+                Text txt = (Text) previous;
+                if (txt.getTextTrim().length() == 0) {
+                    parent.removeContent(txt);
                 }
             }
         }
-    } // -- void iterateNotifier(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        parent.removeContent(element);
+        modified.add(parent);
+        cursors.remove(parent);
+    } // -- void removeElement(Element, Element)
 
     /**
-     * Method iteratePlugin.
+     * Remove the child elements left in the iterator.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
      * @param parent
+     * @param elIt
      */
-    protected void iteratePlugin(Counter counter, Element parent, Collection list, String parentTag,
-            String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Plugin value = (Plugin) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updatePlugin(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
+    protected void removeRemaining(Element parent, Iterator elIt) {
+        List<Element> removed = new ArrayList<>();
+        while (elIt.hasNext()) {
+            removed.add((Element) elIt.next());
+        }
+        for (Element element : removed) {
+            removeElement(parent, element);
         }
-    } // -- void iteratePlugin(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+    } // -- void removeRemaining(Element, Iterator)
 
     /**
-     * Method iteratePluginExecution.
+     * Method reconcile: update the child elements of a list from the model entries, matching them by key. Elements
+     * matched by an entry are updated in place, other elements are removed and new ones are inserted after the element
+     * of the previous entry. Matched elements out of order are moved after the element of the previous entry. The
+     * existing elements are indexed by key for each list, in maps sized to the list.
      *
-     * @param counter
+     * @param depth
+     * @param element the list element
      * @param childTag
-     * @param parentTag
-     * @param list
-     * @param parent
-     */
-    protected void iteratePluginExecution(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                PluginExecution value = (PluginExecution) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updatePluginExecution(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
+     * @param list the model entries
+     * @param modelKey the key of a model entry
+     * @param elementKey the key of an existing element
+     * @param updater the method updating an element from an entry
+     */
+    private <T> void reconcile(int depth, Element element, String childTag, Collection<T> list,
+            Function<T, String> modelKey, Function<Element, String> elementKey, ElementUpdater<T> updater) {
+        List<Element> existing = element.getChildren(childTag, element.getNamespace());
+        Map<String, Deque<Element>> index = new HashMap<>(existing.size() * 2);
+        Map<Element, Integer> positions = new IdentityHashMap<>(existing.size() * 2);
+        for (Element el : existing) {
+            index.computeIfAbsent(elementKey.apply(el), k -> new ArrayDeque<>()).add(el);
+            positions.put(el, positions.size());
+        }
+        List<Element> matched = new ArrayList<>(list.size());
+        Set<Element> unmatched = Collections.newSetFromMap(new IdentityHashMap<>());
+        unmatched.addAll(existing);
+        for (T value : list) {
+            Deque<Element> candidates = index.get(modelKey.apply(value));
+            Element el = (candidates == null) ? null : candidates.poll();
+            matched.add(el);
+            unmatched.remove(el);
+        }
+        removeElements(element, unmatched);
+
+        // The longest run of matched elements already in order stays in place, the other ones are moved
+        Set<Element> kept = longestIncreasingSubsequence(matched, positions);
+        int innerDepth = enter(depth + 1);
+        Iterator<T> it = list.iterator();
+        Element previous = null;
+        for (Element el : matched) {
+            T value = it.next();
+            if (el == null) {
+                el = factory.element(childTag, element.getNamespace());
+                insertAfter(element, el, previous, innerDepth);
+            } else if (!kept.contains(el)) {
+                moveAfter(element, el, previous, innerDepth);
             }
+            updater.update(value, childTag, innerDepth, el);
+            counters[innerDepth]++;
+            previous = el;
         }
-    } // -- void iteratePluginExecution(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+    } // -- void reconcile(int, Element, String, Collection, Function, Function, ElementUpdater)
 
     /**
-     * Method iterateProfile.
+     * Method insertAfter: insert a child right after another one, or before the first child element if there is none.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
      * @param parent
-     */
-    protected void iterateProfile(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Profile value = (Profile) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateProfile(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
+     * @param child
+     * @param previous
+     * @param depth
+     */
+    private void insertAfter(Element parent, Element child, Element previous, int depth) {
+        Element last = lastChildElement(parent);
+        if ((last == null) || (previous == last)) {
+            // Appending, as insertions in a list mostly do, reuses the cursor of the previous insertion
+            insertAtPreferredLocation(parent, child, depth, Integer.MAX_VALUE - 1);
+        } else {
+            insertAfter(parent, Collections.singletonList(child), previous, depth);
         }
-    } // -- void iterateProfile(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+    } // -- void insertAfter(Element, Element, Element, int)
 
     /**
-     * Method iterateReportPlugin.
+     * Method insertAfter: insert an element, preceded by the content attached to it, right after another element or
+     * before the first child element if there is none.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
      * @param parent
-     */
-    protected void iterateReportPlugin(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                ReportPlugin value = (ReportPlugin) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateReportPlugin(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
+     * @param unit the content to insert, ending with the element
+     * @param previous
+     * @param depth
+     */
+    private void insertAfter(Element parent, List<Content> unit, Element previous, int depth) {
+        Element sibling = previous;
+        if ((sibling == null) && !parent.getChildren().isEmpty()) {
+            sibling = parent.getChildren().get(0);
         }
-    } // -- void iterateReportPlugin(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        int index = (sibling == null) ? parent.getContentSize() : parent.indexOf(sibling);
+        Text indent;
+        Content before = (index > 0) ? parent.getContent(index - 1) : null;
+        if (isWhitespace(before)) {
+            indent = (Text) before.clone();
+        } else {
+            indent = factory.text(indent(depth));
+        }
+        if (previous == null) {
+            parent.addContent(index, indent);
+            parent.addContent(index, unit);
+        } else {
+            parent.addContent(index + 1, unit);
+            parent.addContent(index + 1, indent);
+        }
+        modified.add(parent);
+        cursors.remove(parent);
+    } // -- void insertAfter(Element, List, Element, int)
 
     /**
-     * Method iterateReportSet.
+     * Method moveAfter: move an element right after another one, together with the comments on the lines right
+     * before it.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
      * @param parent
-     */
-    protected void iterateReportSet(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                ReportSet value = (ReportSet) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateReportSet(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
+     * @param element
+     * @param previous
+     * @param depth
+     */
+    private void moveAfter(Element parent, Element element, Element previous, int depth) {
+        int index = parent.indexOf(element);
+        int first = index;
+        for (int i = index - 1; i >= 0; i--) {
+            Content content = parent.getContent(i);
+            if (content instanceof Comment) {
+                // Only comments on their own line belong to the element
+                Content before = (i > 0) ? parent.getContent(i - 1) : null;
+                if ((before != null) && !(isWhitespace(before) && ((Text) before).getText().indexOf('\n') >= 0)) {
+                    break;
                 }
+                first = i;
+            } else if (!isWhitespace(content)) {
+                break;
             }
         }
-    } // -- void iterateReportSet(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+        List<Content> unit = new ArrayList<>(parent.getContent().subList(first, index + 1));
+        int from = ((first > 0) && isWhitespace(parent.getContent(first - 1))) ? first - 1 : first;
+        for (int i = index; i >= from; i--) {
+            parent.removeContent(i);
+        }
+        insertAfter(parent, unit, previous, depth);
+    } // -- void moveAfter(Element, Element, Element, int)
 
     /**
-     * Method iterateRepository.
+     * Method isWhitespace.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
-     * @param parent
+     * @param content
+     * @return true if the content is a text made of whitespace only
      */
-    protected void iterateRepository(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Repository value = (Repository) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateRepository(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
-            }
-        }
-    } // -- void iterateRepository(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
+    private static boolean isWhitespace(Content content) {
+        return (content instanceof Text) && !(content instanceof CDATA) && isBlank(((Text) content).getText());
+    } // -- boolean isWhitespace(Content)
 
     /**
-     * Method iterateResource.
+     * Method isBlank: whether a text is empty once trimmed, checked without copying it.
      *
-     * @param counter
-     * @param childTag
-     * @param parentTag
-     * @param list
-     * @param parent
+     * @param text
      */
-    protected void iterateResource(Counter counter, Element parent, Collection list,
-            String parentTag, String childTag) {
-        boolean shouldExist = (list != null) && (!list.isEmpty());
-        Element element = updateElement(counter, parent, parentTag, shouldExist);
-        if (shouldExist) {
-            Iterator it = list.iterator();
-            Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
-            if (!elIt.hasNext()) {
-                elIt = null;
-            }
-
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            while (it.hasNext()) {
-                Resource value = (Resource) it.next();
-                Element el;
-                if ((elIt != null) && elIt.hasNext()) {
-                    el = (Element) elIt.next();
-                    if (!elIt.hasNext()) {
-                        elIt = null;
-                    }
-                } else {
-                    el = factory.element(childTag, element.getNamespace());
-                    insertAtPreferredLocation(element, el, innerCount);
-                }
-                updateResource(value, childTag, innerCount, el);
-                innerCount.increaseCount();
-            }
-            if (elIt != null) {
-                while (elIt.hasNext()) {
-                    elIt.next();
-                    elIt.remove();
-                }
+    private static boolean isBlank(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
             }
         }
-    } // -- void iterateResource(Counter, Element, java.util.Collection,
-      // java.lang.String,
-      // java.lang.String)
-
-    /**
-     * Method replaceXpp3DOM.
-     *
-     * @param parent
-     * @param counter
-     * @param parentDom
-     */
-    @SuppressWarnings("unchecked")
-    protected void replaceXpp3DOM(final Element parent, final Xpp3Dom parentDom, final Counter counter) {
-        if (parentDom.getChildCount() > 0) {
-            Xpp3Dom[] childs = parentDom.getChildren();
-            Collection<Xpp3Dom> domChilds = new ArrayList<>();
-            for (int i = 0; i < childs.length; i++) {
-                domChilds.add(childs[i]);
+        return true;
+    } // -- boolean isBlank(String)
+
+    /**
+     * Method longestIncreasingSubsequence.
+     *
+     * @param matched the matched elements in model order, null for new entries
+     * @param positions the positions of the elements in the document
+     * @return the largest set of matched elements whose document order is the model order
+     */
+    private static Set<Element> longestIncreasingSubsequence(List<Element> matched, Map<Element, Integer> positions) {
+        int size = matched.size();
+        // tails[k]: index in matched of the smallest tail of an increasing run of length k + 1
+        int[] tails = new int[size];
+        int[] predecessors = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            Element element = matched.get(i);
+            if (element == null) {
+                continue;
             }
-
-            ListIterator<Element> it = parent.getChildren().listIterator();
-            while (it.hasNext()) {
-                Element elem = it.next();
-                Iterator<Xpp3Dom> it2 = domChilds.iterator();
-                Xpp3Dom corrDom = null;
-                while (it2.hasNext()) {
-                    Xpp3Dom dm = it2.next();
-                    if (dm.getName().equals(elem.getName())) {
-                        corrDom = dm;
-                        break;
-                    }
-                }
-                if (corrDom != null) {
-                    domChilds.remove(corrDom);
-                    replaceXpp3DOM(elem, corrDom, new Counter(counter.getDepth() + 1));
-                    counter.increaseCount();
+            int position = positions.get(element);
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions.get(matched.get(tails[middle])) < position) {
+                    low = middle + 1;
                 } else {
-                    it.remove();
+                    high = middle;
                 }
             }
-
-            Iterator<Xpp3Dom> it2 = domChilds.iterator();
-            while (it2.hasNext()) {
-                Xpp3Dom dm = it2.next();
-                Element elem = factory.element(dm.getName(), parent.getNamespace());
-                for (String attName : dm.getAttributeNames()) {
-                    elem.setAttribute(attName, dm.getAttribute(attName));
-                }
-                insertAtPreferredLocation(parent, elem, counter);
-                counter.increaseCount();
-                replaceXpp3DOM(elem, dm, new Counter(counter.getDepth() + 1));
+            predecessors[i] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
             }
-        } else if (parentDom.getValue() != null) {
-            parent.setText(parentDom.getValue());
         }
-    } // --
-      // void
-      // replaceXpp3DOM(Element,
-      // Xpp3Dom,
-      // Counter)
-
-    /**
-     * Method updateActivation.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateActivation(Activation value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "activeByDefault",
-                    (!value.isActiveByDefault()) ? null : String.valueOf(value.isActiveByDefault()), "false");
-            findAndReplaceSimpleElement(innerCount, root, "jdk", value.getJdk(), null);
-            updateActivationOS(value.getOs(), "os", innerCount, root);
-            updateActivationProperty(value.getProperty(), "property", innerCount, root);
-            updateActivationFile(value.getFile(), "file", innerCount, root);
+        Set<Element> kept = Collections.newSetFromMap(new IdentityHashMap<>(length * 2));
+        for (int i = (length > 0) ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            kept.add(matched.get(i));
         }
-    } // -- void updateActivation(Activation, String, Counter, Element)
+        return kept;
+    } // -- Set longestIncreasingSubsequence(List, Map)
 
     /**
-     * Method updateActivationFile.
+     * Method lastChildElement.
      *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * @param parent
+     * @return the last child element, or null if there is none
      */
-    protected void updateActivationFile(ActivationFile value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "missing", value.getMissing(), null);
-            findAndReplaceSimpleElement(innerCount, root, "exists", value.getExists(), null);
+    private static Element lastChildElement(Element parent) {
+        for (int i = parent.getContentSize() - 1; i >= 0; i--) {
+            Content content = parent.getContent(i);
+            if (content instanceof Element) {
+                return (Element) content;
+            }
         }
-    } // -- void updateActivationFile(ActivationFile, String, Counter, Element)
+        return null;
+    } // -- Element lastChildElement(Element)
 
     /**
-     * Method updateActivationOS.
+     * Method removeElements: remove child elements together with the whitespace indenting them, in a single pass over
+     * the content.
      *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * @param parent
+     * @param removed
      */
-    protected void updateActivationOS(ActivationOS value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-            findAndReplaceSimpleElement(innerCount, root, "family", value.getFamily(), null);
-            findAndReplaceSimpleElement(innerCount, root, "arch", value.getArch(), null);
-            findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
+    protected void removeElements(Element parent, Set<Element> removed) {
+        if (removed.isEmpty()) {
+            return;
         }
-    } // -- void updateActivationOS(ActivationOS, String, Counter, Element)
-
-    /**
-     * Method updateActivationProperty.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateActivationProperty(ActivationProperty value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-            findAndReplaceSimpleElement(innerCount, root, "value", value.getValue(), null);
+        List<Content> kept = new ArrayList<>(parent.getContentSize());
+        for (Content content : parent.removeContent()) {
+            if (removed.contains(content)) {
+                int last = kept.size() - 1;
+                if ((last >= 0) && (kept.get(last) instanceof Text)
+                        && (((Text) kept.get(last)).getTextTrim().length() == 0)) {
+                    kept.remove(last);
+                }
+            } else {
+                kept.add(content);
+            }
         }
-    } // -- void updateActivationProperty(ActivationProperty, String, Counter,
-      // Element)
+        parent.addContent(kept);
+        modified.add(parent);
+        cursors.remove(parent);
+    } // -- void removeElements(Element, Set)
 
     /**
-     * Method updateBuild.
+     * Method childText.
      *
-     * @param value
      * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateBuild(Build value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "sourceDirectory", value.getSourceDirectory(), null);
-            findAndReplaceSimpleElement(innerCount, root, "scriptSourceDirectory", value.getScriptSourceDirectory(),
-                    null);
-            findAndReplaceSimpleElement(innerCount, root, "testSourceDirectory", value.getTestSourceDirectory(), null);
-            findAndReplaceSimpleElement(innerCount, root, "outputDirectory", value.getOutputDirectory(), null);
-            findAndReplaceSimpleElement(innerCount, root, "testOutputDirectory", value.getTestOutputDirectory(), null);
-            iterateExtension(innerCount, root, value.getExtensions(), "extensions", "extension");
-            findAndReplaceSimpleElement(innerCount, root, "defaultGoal", value.getDefaultGoal(), null);
-            iterateResource(innerCount, root, value.getResources(), "resources", "resource");
-            iterateResource(innerCount, root, value.getTestResources(), "testResources", "testResource");
-            findAndReplaceSimpleElement(innerCount, root, "directory", value.getDirectory(), null);
-            findAndReplaceSimpleElement(innerCount, root, "finalName", value.getFinalName(), null);
-            findAndReplaceSimpleLists(innerCount, root, value.getFilters(), "filters", "filter");
-            updatePluginManagement(value.getPluginManagement(), "pluginManagement", innerCount, root);
-            iteratePlugin(innerCount, root, value.getPlugins(), "plugins", "plugin");
-        } // end if
-    } // -- void updateBuild(Build, String, Counter, Element)
-
-    /**
-     * Method updateBuildBase.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateBuildBase(BuildBase value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "defaultGoal", value.getDefaultGoal(), null);
-            iterateResource(innerCount, root, value.getResources(), "resources", "resource");
-            iterateResource(innerCount, root, value.getTestResources(), "testResources", "testResource");
-            findAndReplaceSimpleElement(innerCount, root, "directory", value.getDirectory(), null);
-            findAndReplaceSimpleElement(innerCount, root, "finalName", value.getFinalName(), null);
-            findAndReplaceSimpleLists(innerCount, root, value.getFilters(), "filters", "filter");
-            updatePluginManagement(value.getPluginManagement(), "pluginManagement", innerCount, root);
-            iteratePlugin(innerCount, root, value.getPlugins(), "plugins", "plugin");
-        }
-    } // -- void updateBuildBase(BuildBase, String, Counter, Element)
-
-    /**
-     * Method updateCiManagement.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * @param name
+     * @param defaultValue
+     * @return the trimmed text of the child element, or the default value if there is none
      */
-    protected void updateCiManagement(CiManagement value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "system", value.getSystem(), null);
-            findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-            iterateNotifier(innerCount, root, value.getNotifiers(), "notifiers", "notifier");
-        }
-    } // -- void updateCiManagement(CiManagement, String, Counter, Element)
+    private static String childText(Element element, String name, String defaultValue) {
+        Element child = childElement(element, name);
+        return (child == null) ? defaultValue : child.getTextTrim();
+    } // -- String childText(Element, String, String)
 
     /**
-     * Method updateConfigurationContainer.
+     * Method childElement: the first child element of the given name, in the namespace of its parent. Unlike
+     * {@link Element#getChild(String, org.jdom2.Namespace)}, the content is scanned in place, without allocating a
+     * filtered view of it.
      *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateConfigurationContainer(ConfigurationContainer value, String xmlTag, Counter counter,
-            Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "inherited", value.getInherited(), null);
-            findAndReplaceXpp3DOM(innerCount, root, "configuration", (Xpp3Dom) value.getConfiguration());
+     * @param parent
+     * @param name
+     * @return the child element, or null if there is none
+     */
+    private static Element childElement(Element parent, String name) {
+        String uri = parent.getNamespaceURI();
+        for (int i = 0, size = parent.getContentSize(); i < size; i++) {
+            Content content = parent.getContent(i);
+            if (content instanceof Element) {
+                Element element = (Element) content;
+                if (element.getName().equals(name) && element.getNamespaceURI().equals(uri)) {
+                    return element;
+                }
+            }
         }
-    } // -- void updateConfigurationContainer(ConfigurationContainer, String,
-      // Counter, Element)
+        return null;
+    } // -- Element childElement(Element, String)
 
-    /**
-     * Method updateContributor.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateContributor(Contributor value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-        findAndReplaceSimpleElement(innerCount, root, "email", value.getEmail(), null);
-        findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-        findAndReplaceSimpleElement(innerCount, root, "organization", value.getOrganization(), null);
-        findAndReplaceSimpleElement(innerCount, root, "organizationUrl", value.getOrganizationUrl(), null);
-        findAndReplaceSimpleLists(innerCount, root, value.getRoles(), "roles", "role");
-        findAndReplaceSimpleElement(innerCount, root, "timezone", value.getTimezone(), null);
-        findAndReplaceProperties(innerCount, root, "properties", value.getProperties());
-    } // -- void updateContributor(Contributor, String, Counter, Element)
+    private static String artifactKey(String groupId, String artifactId) {
+        return groupId + ':' + artifactId;
+    }
 
-    /**
-     * Method updateDependency.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateDependency(Dependency value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
-        findAndReplaceSimpleElement(innerCount, root, "type", value.getType(), "jar");
-        findAndReplaceSimpleElement(innerCount, root, "classifier", value.getClassifier(), null);
-        findAndReplaceSimpleElement(innerCount, root, "scope", value.getScope(), null);
-        findAndReplaceSimpleElement(innerCount, root, "systemPath", value.getSystemPath(), null);
-        iterateExclusion(innerCount, root, value.getExclusions(), "exclusions", "exclusion");
-        findAndReplaceSimpleElement(innerCount, root, "optional",
-                (!value.isOptional()) ? null : String.valueOf(value.isOptional()), "false");
-    } // -- void updateDependency(Dependency, String, Counter, Element)
+    private static String dependencyKey(Dependency value) {
+        return value.getGroupId() + ':' + value.getArtifactId() + ':' + value.getType() + ':'
+                + Objects.toString(value.getClassifier(), "");
+    }
 
-    /**
-     * Method updateDependencyManagement.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateDependencyManagement(DependencyManagement value, String xmlTag, Counter counter,
-            Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            iterateDependency(innerCount, root, value.getDependencies(), "dependencies", "dependency");
-        }
-    } // -- void updateDependencyManagement(DependencyManagement, String,
-      // Counter, Element)
+    private static String dependencyKey(Element element) {
+        return childText(element, "groupId", null) + ':' + childText(element, "artifactId", null) + ':'
+                + childText(element, "type", "jar") + ':' + childText(element, "classifier", "");
+    }
 
     /**
-     * Method updateDeploymentRepository.
+     * Replace the content of an element with the given text, unless it already holds that text only.
      *
-     * @param value
      * @param element
-     * @param counter
-     * @param xmlTag
+     * @param text
      */
-    protected void updateDeploymentRepository(DeploymentRepository value, String xmlTag, Counter counter,
-            Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "uniqueVersion",
-                    (value.isUniqueVersion()) ? null : String.valueOf(value.isUniqueVersion()), "true");
-            findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), null);
-            findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-            findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-            findAndReplaceSimpleElement(innerCount, root, "layout", value.getLayout(), "default");
+    protected void replaceText(Element element, String text) {
+        if (element.getContentSize() == 1 && element.getContent(0) instanceof Text
+                && !(element.getContent(0) instanceof CDATA) && text.equals(element.getText())) {
+            return;
         }
-    } // -- void updateDeploymentRepository(DeploymentRepository, String,
-      // Counter, Element)
-
-    /**
-     * Method updateDeveloper.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateDeveloper(Developer value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-        findAndReplaceSimpleElement(innerCount, root, "email", value.getEmail(), null);
-        findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-        findAndReplaceSimpleElement(innerCount, root, "organization", value.getOrganization(), null);
-        findAndReplaceSimpleElement(innerCount, root, "organizationUrl", value.getOrganizationUrl(), null);
-        findAndReplaceSimpleLists(innerCount, root, value.getRoles(), "roles", "role");
-        findAndReplaceSimpleElement(innerCount, root, "timezone", value.getTimezone(), null);
-        findAndReplaceProperties(innerCount, root, "properties", value.getProperties());
-    } // -- void updateDeveloper(Developer, String, Counter, Element)
+        element.setText(text);
+        modified.add(element);
+        cursors.remove(element);
+    } // -- void replaceText(Element, String)
 
     /**
-     * Method updateDistributionManagement.
+     * Method updateFields: update the child elements of an element from the fields of a model value, as described by
+     * its type. With a pool, the contents of the composite children of the root element are updated concurrently once
+     * all of these children were added or removed, each section by its own writer.
      *
+     * @param type
      * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateDistributionManagement(DistributionManagement value, String xmlTag, Counter counter,
-            Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            updateDeploymentRepository(value.getRepository(), "repository", innerCount, root);
-            updateDeploymentRepository(value.getSnapshotRepository(), "snapshotRepository", innerCount, root);
-            updateSite(value.getSite(), "site", innerCount, root);
-            findAndReplaceSimpleElement(innerCount, root, "downloadUrl", value.getDownloadUrl(), null);
-            updateRelocation(value.getRelocation(), "relocation", innerCount, root);
-            findAndReplaceSimpleElement(innerCount, root, "status", value.getStatus(), null);
-        }
-    } // -- void updateDistributionManagement(DistributionManagement, String,
-      // Counter, Element)
-
-    /**
-     * Method updateElement.
-     *
-     * @param counter
-     * @param shouldExist
-     * @param name
-     * @param parent
-     */
-    protected Element updateElement(Counter counter, Element parent, String name, boolean shouldExist) {
-        Element element = parent.getChild(name, parent.getNamespace());
-        if ((element != null) && shouldExist) {
-            counter.increaseCount();
-        }
-        if ((element == null) && shouldExist) {
-            element = factory.element(name, parent.getNamespace());
-            insertAtPreferredLocation(parent, element, counter);
-            counter.increaseCount();
+     * @param unchanged by index of field, whether the section is known to be up to date in the element, or null
+     * @param depth
+     * @param root
+     */
+    private void updateFields(ElementType<?> type, Object value, boolean[] unchanged, int depth, Element root) {
+        visits++;
+        int innerDepth = enter(depth + 1);
+        List<Callable<Set<Element>>> sections = null;
+        for (int i = 0; i < type.fields.size(); i++) {
+            Field field = type.fields.get(i);
+            if ((unchanged != null) && unchanged[i] && (field.kind != Kind.TEXT)) {
+                skip(innerDepth, root, field.tag);
+                continue;
+            }
+            Object fieldValue = field.getter.apply(value);
+            if (field.kind == Kind.TEXT) {
+                findAndReplaceSimpleElement(innerDepth, root, field.tag, (String) fieldValue, field.defaultValue);
+                continue;
+            }
+            boolean shouldExist = shouldExist(field.kind, fieldValue);
+            Element element = updateElement(innerDepth, root, field.tag, shouldExist);
+            if (!shouldExist) {
+                continue;
+            }
+            if ((pool != null) && root.isRootElement()) {
+                if (sections == null) {
+                    sections = new ArrayList<>();
+                }
+                if (sectionWriters.size() == sections.size()) {
+                    sectionWriters.add(new MavenJDOMWriter());
+                }
+                MavenJDOMWriter writer = sectionWriters.get(sections.size());
+                sections.add(() -> {
+                    writer.updateContent(field, fieldValue, innerDepth, element);
+                    return writer.modified;
+                });
+            } else {
+                updateContent(field, fieldValue, innerDepth, element);
+            }
         }
-        if (!shouldExist && (element != null)) {
-            int index = parent.indexOf(element);
-            if (index > 0) {
-                Content previous = parent.getContent(index - 1);
-                if (previous instanceof Text) {
-                    Text txt = (Text) previous;
-                    if (txt.getTextTrim().length() == 0) {
-                        parent.removeContent(txt);
+        if (sections != null) {
+            List<ForkJoinTask<Set<Element>>> tasks = new ArrayList<>(sections.size());
+            for (Callable<Set<Element>> section : sections) {
+                tasks.add(pool.submit(section));
+            }
+            // Every task is awaited, even after a failure, as they all update the same document and the section
+            // writers must be idle before this writer is reused. They are not cancelled: a cancelled task is
+            // reported as done while it may still be running.
+            Throwable failure = null;
+            for (ForkJoinTask<Set<Element>> task : tasks) {
+                task.quietlyJoin();
+                if (failure == null) {
+                    if (task.isCompletedAbnormally()) {
+                        failure = task.getException();
+                    } else {
+                        modified.addAll(task.getRawResult());
                     }
                 }
             }
-            parent.removeContent(element);
+            for (int i = 0; i < tasks.size(); i++) {
+                MavenJDOMWriter writer = sectionWriters.get(i);
+                visits += writer.visits;
+                reads += writer.reads;
+                writer.visits = 0;
+                writer.reads = 0;
+                writer.reset();
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
         }
-        return element;
-    } // -- Element updateElement(Counter, Element, String, boolean)
+    } // -- void updateFields(ElementType, Object, boolean[], int, Element)
 
     /**
-     * Method updateExclusion.
+     * Method updateContent: update the content of the element of a composite field.
      *
+     * @param field
      * @param value
+     * @param depth
      * @param element
-     * @param counter
-     * @param xmlTag
      */
-    protected void updateExclusion(Exclusion value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), null);
-    } // -- void updateExclusion(Exclusion, String, Counter, Element)
+    @SuppressWarnings("unchecked")
+    private void updateContent(Field field, Object value, int depth, Element element) {
+        switch (field.kind) {
+            case LIST:
+                reconcile(depth, element, field.childTag, (Collection<String>) value, text -> text,
+                        Element::getTextTrim, (text, xmlTag, innerDepth, el) -> replaceText(el, text));
+                break;
+            case PROPERTIES:
+                replaceProperties(depth, element, (Map) value);
+                break;
+            case DOM:
+                replaceXpp3DOM(element, (Xpp3Dom) value, enter(depth + 1));
+                break;
+            case CHILD:
+                updateFields(field.type, value, null, depth, element);
+                break;
+            case CHILDREN:
+                updateList(depth, element, (Collection) value, field.childTag, (ElementType) field.type);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected kind of field: " + field.kind);
+        }
+    } // -- void updateContent(Field, Object, int, Element)
 
     /**
-     * Method updateExtension.
+     * Method shouldExist: whether the value of a composite field is written as an element.
      *
+     * @param kind
      * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
      */
-    protected void updateExtension(Extension value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
-    } // -- void updateExtension(Extension, String, Counter, Element)
+    private static boolean shouldExist(Kind kind, Object value) {
+        switch (kind) {
+            case LIST:
+            case CHILDREN:
+                return (value != null) && !((Collection) value).isEmpty();
+            case PROPERTIES:
+                return (value != null) && !((Map) value).isEmpty();
+            case DOM:
+                Xpp3Dom dom = (Xpp3Dom) value;
+                return (dom != null) && ((dom.getChildCount() > 0) || (dom.getValue() != null));
+            default:
+                return value != null;
+        }
+    } // -- boolean shouldExist(Kind, Object)
 
     /**
-     * Method updateFileSet.
+     * Method updateList: update the entries of a list element. Entries of a type with a key are matched with the
+     * elements by key, other entries are matched by position.
      *
-     * @param value
+     * @param depth
      * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateFileSet(FileSet value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "directory", value.getDirectory(), null);
-            findAndReplaceSimpleLists(innerCount, root, value.getIncludes(), "includes", "include");
-            findAndReplaceSimpleLists(innerCount, root, value.getExcludes(), "excludes", "exclude");
+     * @param list
+     * @param childTag
+     * @param type
+     */
+    private <T> void updateList(int depth, Element element, Collection<T> list, String childTag,
+            ElementType<T> type) {
+        if (type.modelKey != null) {
+            reconcile(depth, element, childTag, list, type.modelKey, type.elementKey,
+                    (value, xmlTag, innerDepth, el) -> updateFields(type, value, null, innerDepth, el));
+            return;
+        }
+        Iterator<T> it = list.iterator();
+        Iterator elIt = element.getChildren(childTag, element.getNamespace()).iterator();
+        if (!elIt.hasNext()) {
+            elIt = null;
         }
-    } // -- void updateFileSet(FileSet, String, Counter, Element)
 
-    /**
-     * Method updateIssueManagement.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateIssueManagement(IssueManagement value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "system", value.getSystem(), null);
-            findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
+        int innerDepth = enter(depth + 1);
+        while (it.hasNext()) {
+            T value = it.next();
+            Element el;
+            if ((elIt != null) && elIt.hasNext()) {
+                el = (Element) elIt.next();
+                if (!elIt.hasNext()) {
+                    elIt = null;
+                }
+            } else {
+                el = factory.element(childTag, element.getNamespace());
+                insertAtPreferredLocation(element, el, innerDepth, counters[innerDepth]);
+            }
+            updateFields(type, value, null, innerDepth, el);
+            counters[innerDepth]++;
+        }
+        if (elIt != null) {
+            removeRemaining(element, elIt);
         }
-    } // -- void updateIssueManagement(IssueManagement, String, Counter,
-      // Element)
+    } // -- void updateList(int, Element, Collection, String, ElementType)
 
     /**
-     * Method updateLicense.
+     * Method skip: leave the element of an unchanged top-level section as it is, only accounting for it in the
+     * counters.
      *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * @param depth
+     * @param parent
+     * @param name
      */
-    protected void updateLicense(License value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-        findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-        findAndReplaceSimpleElement(innerCount, root, "distribution", value.getDistribution(), null);
-        findAndReplaceSimpleElement(innerCount, root, "comments", value.getComments(), null);
-    } // -- void updateLicense(License, String, Counter, Element)
+    private void skip(int depth, Element parent, String name) {
+        if (childElement(parent, name) != null) {
+            counters[depth]++;
+        }
+    } // -- void skip(int, Element, String)
 
-    /**
-     * Method updateMailingList.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateMailingList(MailingList value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-        findAndReplaceSimpleElement(innerCount, root, "subscribe", value.getSubscribe(), null);
-        findAndReplaceSimpleElement(innerCount, root, "unsubscribe", value.getUnsubscribe(), null);
-        findAndReplaceSimpleElement(innerCount, root, "post", value.getPost(), null);
-        findAndReplaceSimpleElement(innerCount, root, "archive", value.getArchive(), null);
-        findAndReplaceSimpleLists(innerCount, root, value.getOtherArchives(), "otherArchives", "otherArchive");
-    } // -- void updateMailingList(MailingList, String, Counter, Element)
+    // -----------------/
+    // - Inner Classes -/
+    // -----------------/
 
     /**
-     * Method updateModel.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * The kinds of fields of the model classes, each written by a case of updateFields.
      */
-    protected void updateModel(Model value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        updateParent(value.getParent(), "parent", innerCount, root);
-        findAndReplaceSimpleElement(innerCount, root, "modelVersion", value.getModelVersion(), null);
-        findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "packaging", value.getPackaging(), "jar");
-        findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-        findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
-        findAndReplaceSimpleElement(innerCount, root, "description", value.getDescription(), null);
-        findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-        updatePrerequisites(value.getPrerequisites(), "prerequisites", innerCount, root);
-        updateIssueManagement(value.getIssueManagement(), "issueManagement", innerCount, root);
-        updateCiManagement(value.getCiManagement(), "ciManagement", innerCount, root);
-        findAndReplaceSimpleElement(innerCount, root, "inceptionYear", value.getInceptionYear(), null);
-        iterateMailingList(innerCount, root, value.getMailingLists(), "mailingLists", "mailingList");
-        iterateDeveloper(innerCount, root, value.getDevelopers(), "developers", "developer");
-        iterateContributor(innerCount, root, value.getContributors(), "contributors", "contributor");
-        iterateLicense(innerCount, root, value.getLicenses(), "licenses", "license");
-        updateScm(value.getScm(), "scm", innerCount, root);
-        updateOrganization(value.getOrganization(), "organization", innerCount, root);
-        updateBuild(value.getBuild(), "build", innerCount, root);
-        iterateProfile(innerCount, root, value.getProfiles(), "profiles", "profile");
-        findAndReplaceSimpleLists(innerCount, root, value.getModules(), "modules", "module");
-        iterateRepository(innerCount, root, value.getRepositories(), "repositories", "repository");
-        iterateRepository(innerCount, root, value.getPluginRepositories(), "pluginRepositories", "pluginRepository");
-        iterateDependency(innerCount, root, value.getDependencies(), "dependencies", "dependency");
-        findAndReplaceXpp3DOM(innerCount, root, "reports", (Xpp3Dom) value.getReports());
-        updateReporting(value.getReporting(), "reporting", innerCount, root);
-        updateDependencyManagement(value.getDependencyManagement(), "dependencyManagement", innerCount, root);
-        updateDistributionManagement(value.getDistributionManagement(), "distributionManagement", innerCount, root);
-        findAndReplaceProperties(innerCount, root, "properties", value.getProperties());
-    } // -- void updateModel(Model, String, Counter, Element)
+    private enum Kind {
+        TEXT,
+        LIST,
+        PROPERTIES,
+        DOM,
+        CHILD,
+        CHILDREN
+    }
 
     /**
-     * Method updateModelBase.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * A field of a model class and the element it is written to.
      */
-    protected void updateModelBase(ModelBase value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleLists(innerCount, root, value.getModules(), "modules", "module");
-            iterateRepository(innerCount, root, value.getRepositories(), "repositories", "repository");
-            iterateRepository(innerCount, root, value.getPluginRepositories(), "pluginRepositories",
-                    "pluginRepository");
-            iterateDependency(innerCount, root, value.getDependencies(), "dependencies", "dependency");
-            findAndReplaceXpp3DOM(innerCount, root, "reports", (Xpp3Dom) value.getReports());
-            updateReporting(value.getReporting(), "reporting", innerCount, root);
-            updateDependencyManagement(value.getDependencyManagement(), "dependencyManagement", innerCount, root);
-            updateDistributionManagement(value.getDistributionManagement(), "distributionManagement", innerCount, root);
-            findAndReplaceProperties(innerCount, root, "properties", value.getProperties());
-        }
-    } // -- void updateModelBase(ModelBase, String, Counter, Element)
+    private static final class Field {
 
-    /**
-     * Method updateNotifier.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateNotifier(Notifier value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "type", value.getType(), "mail");
-        findAndReplaceSimpleElement(innerCount, root, "sendOnError",
-                (value.isSendOnError()) ? null : String.valueOf(value.isSendOnError()), "true");
-        findAndReplaceSimpleElement(innerCount, root, "sendOnFailure",
-                (value.isSendOnFailure()) ? null : String.valueOf(value.isSendOnFailure()), "true");
-        findAndReplaceSimpleElement(innerCount, root, "sendOnSuccess",
-                (value.isSendOnSuccess()) ? null : String.valueOf(value.isSendOnSuccess()), "true");
-        findAndReplaceSimpleElement(innerCount, root, "sendOnWarning",
-                (value.isSendOnWarning()) ? null : String.valueOf(value.isSendOnWarning()), "true");
-        findAndReplaceSimpleElement(innerCount, root, "address", value.getAddress(), null);
-        findAndReplaceProperties(innerCount, root, "configuration", value.getConfiguration());
-    } // -- void updateNotifier(Notifier, String, Counter, Element)
+        private final Kind kind;
 
-    /**
-     * Method updateOrganization.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateOrganization(Organization value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-            findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-        }
-    } // -- void updateOrganization(Organization, String, Counter, Element)
+        private final String tag;
 
-    /**
-     * Method updateParent.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateParent(Parent value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-            findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), null);
-            findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
-            findAndReplaceSimpleElement(innerCount, root, "relativePath", value.getRelativePath(), "../pom.xml");
-        }
-    } // -- void updateParent(Parent, String, Counter, Element)
+        private final String childTag;
 
-    /**
-     * Method updatePatternSet.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updatePatternSet(PatternSet value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleLists(innerCount, root, value.getIncludes(), "includes", "include");
-            findAndReplaceSimpleLists(innerCount, root, value.getExcludes(), "excludes", "exclude");
-        }
-    } // -- void updatePatternSet(PatternSet, String, Counter, Element)
+        private final Function<Object, Object> getter;
 
-    /**
-     * Method updatePlugin.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updatePlugin(Plugin value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), "org.apache.maven.plugins");
-        findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
-        findAndReplaceSimpleElement(innerCount, root, "extensions",
-                (!value.isExtensions()) ? null : String.valueOf(value.isExtensions()), "false");
-        iteratePluginExecution(innerCount, root, value.getExecutions(), "executions", "execution");
-        iterateDependency(innerCount, root, value.getDependencies(), "dependencies", "dependency");
-        findAndReplaceXpp3DOM(innerCount, root, "goals", (Xpp3Dom) value.getGoals());
-        findAndReplaceSimpleElement(innerCount, root, "inherited", value.getInherited(), null);
-        findAndReplaceXpp3DOM(innerCount, root, "configuration", (Xpp3Dom) value.getConfiguration());
-    } // -- void updatePlugin(Plugin, String, Counter, Element)
+        private final String defaultValue;
 
-    /**
-     * Method updatePluginConfiguration.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updatePluginConfiguration(PluginConfiguration value, String xmlTag, Counter counter,
-            Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            updatePluginManagement(value.getPluginManagement(), "pluginManagement", innerCount, root);
-            iteratePlugin(innerCount, root, value.getPlugins(), "plugins", "plugin");
-        }
-    } // -- void updatePluginConfiguration(PluginConfiguration, String, Counter,
-      // Element)
+        private final ElementType<?> type;
 
-    /**
-     * Method updatePluginContainer.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updatePluginContainer(PluginContainer value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            iteratePlugin(innerCount, root, value.getPlugins(), "plugins", "plugin");
+        @SuppressWarnings("unchecked")
+        Field(Kind kind, String tag, String childTag, Function<?, ?> getter, String defaultValue,
+                ElementType<?> type) {
+            this.kind = kind;
+            this.tag = tag;
+            this.childTag = childTag;
+            this.getter = (Function<Object, Object>) getter;
+            this.defaultValue = defaultValue;
+            this.type = type;
         }
-    } // -- void updatePluginContainer(PluginContainer, String, Counter,
-      // Element)
+    }
 
     /**
-     * Method updatePluginExecution.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * How a model class is written: its fields, in the order they are updated, and the keys matching the entries of a
+     * list with the existing elements, if any.
      */
-    protected void updatePluginExecution(PluginExecution value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), "default");
-        findAndReplaceSimpleElement(innerCount, root, "phase", value.getPhase(), null);
-        findAndReplaceSimpleLists(innerCount, root, value.getGoals(), "goals", "goal");
-        findAndReplaceSimpleElement(innerCount, root, "inherited", value.getInherited(), null);
-        findAndReplaceXpp3DOM(innerCount, root, "configuration", (Xpp3Dom) value.getConfiguration());
-    } // -- void updatePluginExecution(PluginExecution, String, Counter,
-      // Element)
+    private static final class ElementType<T> {
 
-    /**
-     * Method updatePluginManagement.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updatePluginManagement(PluginManagement value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            iteratePlugin(innerCount, root, value.getPlugins(), "plugins", "plugin");
-        }
-    } // -- void updatePluginManagement(PluginManagement, String, Counter,
-      // Element)
+        private final List<Field> fields = new ArrayList<>();
 
-    /**
-     * Method updatePrerequisites.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updatePrerequisites(Prerequisites value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "maven", value.getMaven(), "2.0");
-        }
-    } // -- void updatePrerequisites(Prerequisites, String, Counter, Element)
+        private Function<T, String> modelKey;
 
-    /**
-     * Method updateProfile.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateProfile(Profile value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), null);
-        updateActivation(value.getActivation(), "activation", innerCount, root);
-        updateBuildBase(value.getBuild(), "build", innerCount, root);
-        findAndReplaceSimpleLists(innerCount, root, value.getModules(), "modules", "module");
-        iterateRepository(innerCount, root, value.getRepositories(), "repositories", "repository");
-        iterateRepository(innerCount, root, value.getPluginRepositories(), "pluginRepositories", "pluginRepository");
-        iterateDependency(innerCount, root, value.getDependencies(), "dependencies", "dependency");
-        findAndReplaceXpp3DOM(innerCount, root, "reports", (Xpp3Dom) value.getReports());
-        updateReporting(value.getReporting(), "reporting", innerCount, root);
-        updateDependencyManagement(value.getDependencyManagement(), "dependencyManagement", innerCount, root);
-        updateDistributionManagement(value.getDistributionManagement(), "distributionManagement", innerCount, root);
-        findAndReplaceProperties(innerCount, root, "properties", value.getProperties());
-    } // -- void updateProfile(Profile, String, Counter, Element)
+        private Function<Element, String> elementKey;
 
-    /**
-     * Method updateRelocation.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateRelocation(Relocation value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), null);
-            findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-            findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
-            findAndReplaceSimpleElement(innerCount, root, "message", value.getMessage(), null);
+        ElementType<T> text(String tag, Function<T, String> getter) {
+            return text(tag, getter, null);
         }
-    } // -- void updateRelocation(Relocation, String, Counter, Element)
 
-    /**
-     * Method updateReporting.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateReporting(Reporting value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "excludeDefaults",
-                    (!value.isExcludeDefaults()) ? null : String.valueOf(value.isExcludeDefaults()), "false");
-            findAndReplaceSimpleElement(innerCount, root, "outputDirectory", value.getOutputDirectory(), null);
-            iterateReportPlugin(innerCount, root, value.getPlugins(), "plugins", "plugin");
+        ElementType<T> text(String tag, Function<T, String> getter, String defaultValue) {
+            fields.add(new Field(Kind.TEXT, tag, null, getter, defaultValue, null));
+            return this;
         }
-    } // -- void updateReporting(Reporting, String, Counter, Element)
 
-    /**
-     * Method updateReportPlugin.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateReportPlugin(ReportPlugin value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "groupId", value.getGroupId(), "org.apache.maven.plugins");
-        findAndReplaceSimpleElement(innerCount, root, "artifactId", value.getArtifactId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "version", value.getVersion(), null);
-        findAndReplaceSimpleElement(innerCount, root, "inherited", value.getInherited(), null);
-        findAndReplaceXpp3DOM(innerCount, root, "configuration", (Xpp3Dom) value.getConfiguration());
-        iterateReportSet(innerCount, root, value.getReportSets(), "reportSets", "reportSet");
-    } // -- void updateReportPlugin(ReportPlugin, String, Counter, Element)
+        /**
+         * A boolean field, only written when it differs from its default value.
+         */
+        ElementType<T> flag(String tag, Predicate<T> getter, boolean defaultValue) {
+            Function<T, String> text = value -> (getter.test(value) == defaultValue) ? null
+                    : String.valueOf(!defaultValue);
+            return text(tag, text, String.valueOf(defaultValue));
+        }
 
-    /**
-     * Method updateReportSet.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateReportSet(ReportSet value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), "default");
-        findAndReplaceXpp3DOM(innerCount, root, "configuration", (Xpp3Dom) value.getConfiguration());
-        findAndReplaceSimpleElement(innerCount, root, "inherited", value.getInherited(), null);
-        findAndReplaceSimpleLists(innerCount, root, value.getReports(), "reports", "report");
-    } // -- void updateReportSet(ReportSet, String, Counter, Element)
+        ElementType<T> list(String tag, String childTag, Function<T, List<String>> getter) {
+            fields.add(new Field(Kind.LIST, tag, childTag, getter, null, null));
+            return this;
+        }
 
-    /**
-     * Method updateRepository.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateRepository(Repository value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        updateRepositoryPolicy(value.getReleases(), "releases", innerCount, root);
-        updateRepositoryPolicy(value.getSnapshots(), "snapshots", innerCount, root);
-        findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), null);
-        findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-        findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-        findAndReplaceSimpleElement(innerCount, root, "layout", value.getLayout(), "default");
-    } // -- void updateRepository(Repository, String, Counter, Element)
+        ElementType<T> properties(String tag, Function<T, Properties> getter) {
+            fields.add(new Field(Kind.PROPERTIES, tag, null, getter, null, null));
+            return this;
+        }
 
-    /**
-     * Method updateRepositoryBase.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateRepositoryBase(RepositoryBase value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), null);
-            findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-            findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-            findAndReplaceSimpleElement(innerCount, root, "layout", value.getLayout(), "default");
+        ElementType<T> dom(String tag, Function<T, Object> getter) {
+            fields.add(new Field(Kind.DOM, tag, null, getter, null, null));
+            return this;
         }
-    } // -- void updateRepositoryBase(RepositoryBase, String, Counter, Element)
 
-    /**
-     * Method updateRepositoryPolicy.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateRepositoryPolicy(RepositoryPolicy value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "enabled",
-                    (value.isEnabled()) ? null : String.valueOf(value.isEnabled()), "true");
-            findAndReplaceSimpleElement(innerCount, root, "updatePolicy", value.getUpdatePolicy(), null);
-            findAndReplaceSimpleElement(innerCount, root, "checksumPolicy", value.getChecksumPolicy(), null);
+        <V> ElementType<T> child(String tag, Function<T, V> getter, ElementType<V> type) {
+            fields.add(new Field(Kind.CHILD, tag, null, getter, null, type));
+            return this;
         }
-    } // -- void updateRepositoryPolicy(RepositoryPolicy, String, Counter,
-      // Element)
 
-    /**
-     * Method updateResource.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateResource(Resource value, String xmlTag, Counter counter, Element element) {
-        Element root = element;
-        Counter innerCount = new Counter(counter.getDepth() + 1);
-        findAndReplaceSimpleElement(innerCount, root, "targetPath", value.getTargetPath(), null);
-        findAndReplaceSimpleElement(innerCount, root, "filtering",
-                (!value.isFiltering()) ? null : String.valueOf(value.isFiltering()), "false");
-        findAndReplaceSimpleElement(innerCount, root, "directory", value.getDirectory(), null);
-        findAndReplaceSimpleLists(innerCount, root, value.getIncludes(), "includes", "include");
-        findAndReplaceSimpleLists(innerCount, root, value.getExcludes(), "excludes", "exclude");
-    } // -- void updateResource(Resource, String, Counter, Element)
+        <V> ElementType<T> children(String tag, String childTag, Function<T, List<V>> getter, ElementType<V> type) {
+            fields.add(new Field(Kind.CHILDREN, tag, childTag, getter, null, type));
+            return this;
+        }
 
-    /**
-     * Method updateScm.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
-     */
-    protected void updateScm(Scm value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "connection", value.getConnection(), null);
-            findAndReplaceSimpleElement(innerCount, root, "developerConnection", value.getDeveloperConnection(), null);
-            findAndReplaceSimpleElement(innerCount, root, "tag", value.getTag(), "HEAD");
-            findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
+        ElementType<T> keyedBy(Function<T, String> modelKey, Function<Element, String> elementKey) {
+            this.modelKey = modelKey;
+            this.elementKey = elementKey;
+            return this;
         }
-    } // -- void updateScm(Scm, String, Counter, Element)
+    }
 
     /**
-     * Method updateSite.
-     *
-     * @param value
-     * @param element
-     * @param counter
-     * @param xmlTag
+     * Writes a model entry to an element.
      */
-    protected void updateSite(Site value, String xmlTag, Counter counter, Element element) {
-        boolean shouldExist = value != null;
-        Element root = updateElement(counter, element, xmlTag, shouldExist);
-        if (shouldExist) {
-            Counter innerCount = new Counter(counter.getDepth() + 1);
-            findAndReplaceSimpleElement(innerCount, root, "id", value.getId(), null);
-            findAndReplaceSimpleElement(innerCount, root, "name", value.getName(), null);
-            findAndReplaceSimpleElement(innerCount, root, "url", value.getUrl(), null);
-        }
-    } // -- void updateSite(Site, String, Counter, Element)
+    @FunctionalInterface
+    private interface ElementUpdater<T> {
 
-    // -----------------/
-    // - Inner Classes -/
-    // -----------------/
+        void update(T value, String xmlTag, int depth, Element element);
+    }
 
     /**
-     * Class Counter.
-     *
-     * @version $Revision$ $Date$
+     * The state of the scan of insertAtPreferredLocation right after an inserted element. Insertions in a list
+     * mostly happen in order, so the next one can resume the scan from there instead of from the first child. The
+     * cursor only moves forward: it is dropped whenever the parent loses children or is rewritten.
      */
-    public class Counter {
-        // --------------------------/
-        // - Class/Member Variables -/
-        // --------------------------/
-
-        /**
-         * Field currentIndex.
-         */
-        private int currentIndex = 0;
-
-        /**
-         * Field level.
-         */
-        private int level;
+    private static class Cursor {
 
-        // ----------------/
-        // - Constructors -/
-        // ----------------/
+        private int elementCounter;
 
-        public Counter(int depthLevel) {
-            level = depthLevel;
-        } // -- org.apache.maven.model.io.jdom.Counter(int)
+        private int contentIndex;
 
-        // -----------/
-        // - Methods -/
-        // -----------/
+        private Text lastText;
 
-        /**
-         * Method getCurrentIndex.
-         */
-        public int getCurrentIndex() {
-            return currentIndex;
-        } // -- int getCurrentIndex()
+        private int contentSize;
 
-        /**
-         * Method getDepth.
-         */
-        public int getDepth() {
-            return level;
-        } // -- int getDepth()
+        Cursor(int elementCounter, int contentIndex, Text lastText, int contentSize) {
+            set(elementCounter, contentIndex, lastText, contentSize);
+        }
 
-        /**
-         * Method increaseCount.
-         */
-        public void increaseCount() {
-            currentIndex = currentIndex + 1;
-        } // -- void increaseCount()
+        void set(int elementCounter, int contentIndex, Text lastText, int contentSize) {
+            this.elementCounter = elementCounter;
+            this.contentIndex = contentIndex;
+            this.lastText = lastText;
+            this.contentSize = contentSize;
+        }
     }
 }
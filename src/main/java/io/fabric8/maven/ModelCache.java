@@ -0,0 +1,215 @@
+package io.fabric8.maven;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.model.Model;
+
+/**
+ * An opt-in cache of {@link Model}s read from pom.xml files, keyed by path.
+ * <p>
+ * A cached entry is used only while the last modified time and the size of the file are unchanged and, if enabled,
+ * while the SHA-256 hash of its contents is unchanged. The least recently used entries are evicted once the maximum
+ * number of entries is reached. Every call returns a copy of the cached {@link Model}, so callers are free to modify
+ * it. Files written through {@link Maven#writeModel(Model, Path)} are invalidated in every live cache.
+ * <p>
+ * This class is thread-safe.
+ */
+public class ModelCache {
+
+    private static final Set<ModelCache> CACHES = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final boolean verifyContentHash;
+
+    private final Map<Path, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a cache validating entries against the last modified time and size of the files
+     *
+     * @param maxEntries the maximum number of cached models
+     */
+    public ModelCache(int maxEntries) {
+        this(maxEntries, false);
+    }
+
+    /**
+     * @param maxEntries the maximum number of cached models
+     * @param verifyContentHash true to also validate entries against a hash of the file contents
+     */
+    public ModelCache(int maxEntries, boolean verifyContentHash) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.verifyContentHash = verifyContentHash;
+        this.entries = new LinkedHashMap<Path, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        CACHES.add(this);
+    }
+
+    /**
+     * Read the {@link Path} as a {@link Model}, using the cached model if the file did not change
+     *
+     * @param pom a path to a pom.xml file
+     * @return a copy of the maven {@link Model}
+     */
+    public Model readModel(Path pom) {
+        Path key = pom.toAbsolutePath().normalize();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(key);
+            }
+            byte[] content = null;
+            if (entry != null && entry.lastModified.equals(attributes.lastModifiedTime())
+                    && entry.size == attributes.size()) {
+                if (!verifyContentHash) {
+                    hits.incrementAndGet();
+                    return entry.model.clone();
+                }
+                content = Files.readAllBytes(key);
+                if (Arrays.equals(entry.hash, hash(content))) {
+                    hits.incrementAndGet();
+                    return entry.model.clone();
+                }
+            }
+            misses.incrementAndGet();
+            if (content == null) {
+                content = Files.readAllBytes(key);
+            }
+            // Decoded like Maven.readModel(Path) and Maven.open, so that all of them read the same model from a
+            // pom.xml in another encoding
+            Model model = Maven.readModel(
+                    new InputStreamReader(new ByteArrayInputStream(content), PomEncoding.charset(content)));
+            model.setPomFile(pom.toFile());
+            entry = new Entry(attributes.lastModifiedTime(), attributes.size(),
+                    verifyContentHash ? hash(content) : null, model);
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+            return model.clone();
+        } catch (IOException io) {
+            throw new UncheckedIOException("Error while reading pom.xml", io);
+        }
+    }
+
+    /**
+     * Remove the cached model of the given {@link Path}, if any
+     *
+     * @param pom a path to a pom.xml file
+     */
+    public void invalidate(Path pom) {
+        Path key = pom.toAbsolutePath().normalize();
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Remove all cached models
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached models
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the number of reads served from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of reads that had to parse the file
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of models evicted to stay within the maximum number of entries
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Remove the cached model of the given {@link Path} from every live cache
+     */
+    static void invalidateAll(Path pom) {
+        synchronized (CACHES) {
+            for (ModelCache cache : CACHES) {
+                cache.invalidate(pom);
+            }
+        }
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class Entry {
+
+        private final FileTime lastModified;
+
+        private final long size;
+
+        private final byte[] hash;
+
+        private final Model model;
+
+        Entry(FileTime lastModified, long size, byte[] hash, Model model) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+            this.model = model;
+        }
+    }
+}
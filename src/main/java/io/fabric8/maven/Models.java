@@ -0,0 +1,128 @@
+package io.fabric8.maven;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.model.InputLocation;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Utility methods for the classes of the maven {@link org.apache.maven.model.Model}, which implement neither equals
+ * nor hashCode.
+ */
+final class Models {
+
+    /**
+     * Fields that are derived from the other ones or that track where values come from
+     */
+    private static final Set<String> IGNORED_FIELDS = new HashSet<>(
+            Arrays.asList("locations", "managementKey", "executionMap"));
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && field.getType() != InputLocation.class
+                            && !IGNORED_FIELDS.contains(field.getName())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private Models() {
+    }
+
+    /**
+     * Compare values of the model field by field, recursively. Empty lists and maps are equal to null, as the getters
+     * of the model initialize them lazily, and the fields tracking where values come from are ignored.
+     * {@link Xpp3Dom} values are compared by name, value, attributes and children, other values with equals.
+     *
+     * @return true if both values hold the same data
+     */
+    static boolean deepEquals(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (isEmpty(a) || isEmpty(b)) {
+            return isEmpty(a) && isEmpty(b);
+        }
+        if ((a instanceof List) && (b instanceof List)) {
+            List<?> list = (List<?>) a;
+            List<?> other = (List<?>) b;
+            if (list.size() != other.size()) {
+                return false;
+            }
+            for (int i = 0; i < list.size(); i++) {
+                if (!deepEquals(list.get(i), other.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if ((a instanceof Map) && (b instanceof Map)) {
+            // Independent from the implementation, as the copy of a SortedProperties is a Properties
+            Map<?, ?> map = (Map<?, ?>) a;
+            Map<?, ?> other = (Map<?, ?>) b;
+            if (map.size() != other.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!other.containsKey(entry.getKey()) || !deepEquals(entry.getValue(), other.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if ((a instanceof Xpp3Dom) && (b instanceof Xpp3Dom)) {
+            Xpp3Dom dom = (Xpp3Dom) a;
+            Xpp3Dom other = (Xpp3Dom) b;
+            if (!dom.getName().equals(other.getName()) || !deepEquals(dom.getValue(), other.getValue())
+                    || dom.getAttributeNames().length != other.getAttributeNames().length
+                    || dom.getChildCount() != other.getChildCount()) {
+                return false;
+            }
+            for (String name : dom.getAttributeNames()) {
+                if (!deepEquals(dom.getAttribute(name), other.getAttribute(name))) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < dom.getChildCount(); i++) {
+                if (!deepEquals(dom.getChild(i), other.getChild(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if ((a.getClass() != b.getClass()) || !a.getClass().getName().startsWith("org.apache.maven.model.")) {
+            return a.equals(b);
+        }
+        try {
+            for (Field field : FIELDS.get(a.getClass())) {
+                if (!deepEquals(field.get(a), field.get(b))) {
+                    return false;
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(Object value) {
+        return (value == null) || ((value instanceof Collection) && ((Collection<?>) value).isEmpty())
+                || ((value instanceof Map) && ((Map<?, ?>) value).isEmpty());
+    }
+}
@@ -0,0 +1,191 @@
+package io.fabric8.maven;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.jdom2.Document;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+/**
+ * The buffers a {@link Document} is pretty-printed and encoded into, so that it can be written with a single call.
+ * <p>
+ * Instances are taken from a small pool shared by all threads with {@link #acquire()}, and handed back with
+ * {@link #release(PomBuffer)} once the encoded document was written: the {@link ByteBuffer} returned by
+ * {@link #encode(Document, Charset)} is only valid until then. Idle instances keep buffers of at most
+ * {@value #MAX_RETAINED_CAPACITY} bytes, larger ones grown for a large pom.xml are dropped on release.
+ * <p>
+ * Text and attribute values the charset cannot encode are escaped by the {@link XMLOutputter} as character
+ * references. The characters it cannot escape, in comments or processing instructions, are written as character
+ * references too rather than being lost, although they are not resolved there when the file is read back.
+ */
+final class PomBuffer {
+
+    private static final InstancePool<PomBuffer> BUFFERS = new InstancePool<>(PomBuffer::new);
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    /**
+     * Buffers grown beyond this size for a large pom.xml are not kept for the next one
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private final XMLOutputter outputter = new XMLOutputter();
+
+    private Chars chars;
+
+    private ByteBuffer bytes;
+
+    private Charset charset;
+
+    private CharsetEncoder encoder;
+
+    private PomBuffer() {
+    }
+
+    /**
+     * @return an idle instance, or a new one if none is idle
+     */
+    static PomBuffer acquire() {
+        return BUFFERS.acquire();
+    }
+
+    /**
+     * Hand an instance back to the pool, once the buffer returned by {@link #encode(Document, Charset)} is no longer
+     * used
+     *
+     * @param buffer the instance to release
+     */
+    static void release(PomBuffer buffer) {
+        // Two bytes per char
+        if ((buffer.chars != null) && (buffer.chars.capacity() * 2L > MAX_RETAINED_CAPACITY)) {
+            buffer.chars = null;
+        }
+        if ((buffer.bytes != null) && (buffer.bytes.capacity() > MAX_RETAINED_CAPACITY)) {
+            buffer.bytes = null;
+        }
+        BUFFERS.release(buffer);
+    }
+
+    /**
+     * Pretty-print the document, declaring the given charset in the XML declaration, and encode it
+     *
+     * @param document the document to print
+     * @param charset the charset to encode it with
+     * @return the encoded document, from its position to its limit
+     */
+    ByteBuffer encode(Document document, Charset charset) {
+        print(document, charset);
+        CharBuffer in = chars.view();
+        int estimate = (int) Math.ceil(in.remaining() * (double) encoder.averageBytesPerChar());
+        if ((bytes == null) || (bytes.capacity() < estimate)) {
+            bytes = ByteBuffer.allocate(Math.max(INITIAL_CAPACITY, estimate));
+        } else {
+            bytes.clear();
+        }
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(in, bytes, true);
+            if (result.isOverflow()) {
+                grow();
+            } else if (result.isUnmappable()) {
+                escape(in, result.length());
+            }
+        } while (!result.isUnderflow());
+        do {
+            result = encoder.flush(bytes);
+            if (result.isOverflow()) {
+                grow();
+            }
+        } while (result.isOverflow());
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Pretty-print the document, declaring the given charset in the XML declaration
+     *
+     * @param document the document to print
+     * @param charset the charset the text is meant to be encoded with
+     * @return the printed document
+     */
+    String toString(Document document, Charset charset) {
+        print(document, charset);
+        return chars.toString();
+    }
+
+    private void print(Document document, Charset charset) {
+        if (!charset.equals(this.charset)) {
+            outputter.setFormat(Format.getPrettyFormat()
+                    .setLineSeparator(System.lineSeparator())
+                    .setEncoding(charset.name()));
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            this.charset = charset;
+        }
+        if (chars == null) {
+            chars = new Chars();
+        } else {
+            chars.reset();
+        }
+        try {
+            outputter.output(document, chars);
+        } catch (IOException e) {
+            // Not thrown when writing to memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Encode the characters the charset cannot encode as character references, the same way the
+     * {@link XMLOutputter} escapes text
+     *
+     * @param in the characters being encoded, positioned on the ones to escape
+     * @param length the number of chars to escape
+     */
+    private void escape(CharBuffer in, int length) {
+        int end = in.position() + length;
+        while (in.position() < end) {
+            int codePoint = Character.codePointAt(in, 0);
+            in.position(in.position() + Character.charCount(codePoint));
+            CharBuffer reference = CharBuffer.wrap("&#x" + Integer.toHexString(codePoint) + ";");
+            while (encoder.encode(reference, bytes, true).isOverflow()) {
+                grow();
+            }
+        }
+    }
+
+    private void grow() {
+        ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+        bytes.flip();
+        larger.put(bytes);
+        bytes = larger;
+    }
+
+    /**
+     * Exposes the characters written without copying them
+     */
+    private static final class Chars extends CharArrayWriter {
+
+        Chars() {
+            super(INITIAL_CAPACITY);
+        }
+
+        CharBuffer view() {
+            return CharBuffer.wrap(buf, 0, count);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
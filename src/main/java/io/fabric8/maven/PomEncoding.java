@@ -0,0 +1,95 @@
+package io.fabric8.maven;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detects the charset of a pom.xml from its byte order mark or its XML declaration, so that every way of reading a
+ * pom.xml decodes it the same way.
+ */
+final class PomEncoding {
+
+    private static final Pattern ENCODING = Pattern.compile("^<\\?xml[^>]*encoding\\s*=\\s*[\"']([A-Za-z0-9._:-]+)[\"']");
+
+    /**
+     * The number of bytes the charset is looked for in
+     */
+    private static final int PROLOG_LENGTH = 256;
+
+    private PomEncoding() {
+    }
+
+    /**
+     * Open a {@link Reader} on the {@link Path}, decoding it with its declared charset
+     *
+     * @param pom a path to a pom.xml file
+     * @return a Reader on the contents of the file
+     */
+    static Reader newReader(Path pom) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(pom));
+        try {
+            in.mark(PROLOG_LENGTH);
+            byte[] prolog = new byte[PROLOG_LENGTH];
+            int length = in.readNBytes(prolog, 0, PROLOG_LENGTH);
+            in.reset();
+            return new InputStreamReader(in, charset(prolog, length));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param content the bytes of a XML document
+     * @return the charset declared by its byte order mark or its XML declaration, UTF-8 if none is declared
+     */
+    static Charset charset(byte[] content) {
+        return charset(content, content.length);
+    }
+
+    /**
+     * @param text the text of a XML document
+     * @return the charset declared by its XML declaration, UTF-8 if none is declared
+     */
+    static Charset charset(CharSequence text) {
+        int start = text.length() > 0 && text.charAt(0) == '\uFEFF' ? 1 : 0;
+        return declaredCharset(text.subSequence(start, Math.min(text.length(), start + PROLOG_LENGTH)));
+    }
+
+    private static Charset charset(byte[] content, int length) {
+        if (length >= 2 && (content[0] & 0xFF) == 0xFE && (content[1] & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && (content[0] & 0xFF) == 0xFF && (content[1] & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (length >= 3 && (content[0] & 0xFF) == 0xEF && (content[1] & 0xFF) == 0xBB
+                && (content[2] & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        return declaredCharset(new String(content, 0, Math.min(length, PROLOG_LENGTH), StandardCharsets.ISO_8859_1));
+    }
+
+    private static Charset declaredCharset(CharSequence prolog) {
+        Matcher matcher = ENCODING.matcher(prolog);
+        if (matcher.find()) {
+            try {
+                return Charset.forName(matcher.group(1));
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                // Fall back to the default
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
@@ -0,0 +1,216 @@
+package io.fabric8.maven;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.maven.model.Model;
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+/**
+ * An edit session on a pom.xml file, obtained from {@link Maven#open(Path)}.
+ * <p>
+ * The {@link Model} and the JDOM {@link Document} are created from a single read of the file, and the document is
+ * reused (and kept up to date) every time the model is saved, so editing never parses the file a second time. A copy of
+ * the model is taken when the file is read: saving compares the top-level sections of the model (build, profiles,
+ * dependencies...) with it and only updates the ones that differ, leaving the elements of the others unvisited. The
+ * copy is taken again after a save that changed one of these sections.
+ * <p>
+ * Saving serializes the model in memory and leaves the file untouched when the result is identical to its contents.
+ * Otherwise the file is replaced atomically. Saving fails if the file was changed by another tool since the handle
+ * last read or wrote it, rather than overwriting those changes.
+ * <p>
+ * By default the whole document is pretty-printed when saving. With {@link #setPreserveFormatting(boolean)}, only the
+ * elements changed by the model are written again, and everything else is copied unchanged from the file.
+ */
+public final class PomHandle {
+
+    private final Path pom;
+
+    private final Model model;
+
+    private final Document document;
+
+    private byte[] content;
+
+    /**
+     * The modification time of the file when content was last read from or written to it
+     */
+    private FileTime lastModified;
+
+    /**
+     * The text the document was last read from or written to, which differs from content after save(Path)
+     */
+    private byte[] rendered;
+
+    /**
+     * A copy of the model as the document holds it, so that saving only updates the sections that changed since
+     */
+    private Model baseline;
+
+    private boolean preserveFormatting;
+
+    private ForkJoinPool pool;
+
+    PomHandle(Path pom, FileTime lastModified, byte[] content, Model model, Document document) {
+        this.pom = pom;
+        this.lastModified = lastModified;
+        this.content = content;
+        this.rendered = content;
+        this.model = model;
+        this.baseline = model.clone();
+        this.document = document;
+    }
+
+    /**
+     * @return the path this handle was opened from
+     */
+    public Path getPath() {
+        return pom;
+    }
+
+    /**
+     * @return the {@link Model} to be edited
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * @return the JDOM {@link Document} the model is written to
+     */
+    public Document getDocument() {
+        return document;
+    }
+
+    /**
+     * @return true if saving copies the parts of the file the model did not change verbatim
+     */
+    public boolean isPreserveFormatting() {
+        return preserveFormatting;
+    }
+
+    /**
+     * Choose how the model is saved. When formatting is preserved, only the elements whose content the model changed
+     * are written again: the rest of the file, including comments, indentation, line separators and the XML
+     * declaration, is copied unchanged and the file keeps its declared encoding. Otherwise the whole document is
+     * pretty-printed, as with {@link Maven#writeModel(Model, Path)}.
+     *
+     * @param preserveFormatting true to preserve the formatting of the file
+     */
+    public void setPreserveFormatting(boolean preserveFormatting) {
+        this.preserveFormatting = preserveFormatting;
+    }
+
+    /**
+     * @return the pool the sections are updated on when saving, or null if they are updated sequentially
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Update the top-level sections of the document concurrently when saving, whether formatting is preserved or not,
+     * as with {@link Maven#writeModel(Model, Path, ForkJoinPool)}.
+     *
+     * @param pool the pool the sections are updated on, or null (the default) to update them sequentially
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Write the model back to the file this handle was opened from, unless its contents would not change. The
+     * contents are compared with the ones last read or written by this handle, which must still be the contents of the
+     * file.
+     *
+     * @return true if the file was written
+     * @throws IllegalStateException if the file was changed or deleted since this handle last read or wrote it
+     */
+    public boolean save() {
+        checkUnchanged();
+        byte[] updated = render();
+        boolean changed = Maven.writeIfChanged(pom, content, updated);
+        content = updated;
+        if (changed) {
+            try {
+                lastModified = Files.getLastModifiedTime(pom);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read POM file: " + pom, e);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Write the model to the provided {@link Path}, unless its contents would not change
+     *
+     * @param target the file to write
+     * @return true if the file was written
+     */
+    public boolean save(Path target) {
+        if (target.equals(pom)) {
+            return save();
+        }
+        byte[] original;
+        try {
+            original = Files.exists(target) ? Files.readAllBytes(target) : new byte[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read POM file: " + target, e);
+        }
+        return Maven.writeIfChanged(target, original, render());
+    }
+
+    /**
+     * Check that the file still holds the contents last read or written by this handle. The contents are only read
+     * again when the size or the modification time of the file changed.
+     */
+    private void checkUnchanged() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(pom, BasicFileAttributes.class);
+            if (attributes.size() == content.length) {
+                if (attributes.lastModifiedTime().equals(lastModified)) {
+                    return;
+                }
+                if (Arrays.equals(Files.readAllBytes(pom), content)) {
+                    lastModified = attributes.lastModifiedTime();
+                    return;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted since
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read POM file: " + pom, e);
+        }
+        throw new IllegalStateException("POM file was changed since it was read: " + pom);
+    }
+
+    private byte[] render() {
+        SplicingOutputter outputter = null;
+        Charset charset = null;
+        if (preserveFormatting) {
+            charset = PomEncoding.charset(rendered);
+            outputter = SplicingOutputter.create(new String(rendered, charset), document, charset);
+        }
+        boolean[] unchanged = MavenJDOMWriter.compare(model, baseline);
+        if (outputter == null) {
+            rendered = Maven.serialize(model, unchanged, document, pool);
+        } else {
+            Set<Element> modified = Maven.update(model, unchanged, document, pool);
+            rendered = outputter.output(document, modified).getBytes(charset);
+        }
+        if (!MavenJDOMWriter.isUnchanged(unchanged)) {
+            baseline = model.clone();
+        }
+        return rendered;
+    }
+}
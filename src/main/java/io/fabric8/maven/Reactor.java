@@ -0,0 +1,157 @@
+package io.fabric8.maven;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import org.apache.maven.model.Model;
+
+/**
+ * A multi-module tree of pom.xml files, obtained from {@link Maven#readReactor(Path)}.
+ * <p>
+ * All paths are absolute and normalized. Models are listed depth-first, in the order the modules are declared,
+ * starting with the root.
+ */
+public final class Reactor {
+
+    private final Path root;
+
+    private final Map<Path, Model> models;
+
+    private final Map<Path, List<Path>> modules;
+
+    private final Map<Path, Path> parents;
+
+    private Reactor(Path root, Map<Path, Model> models, Map<Path, List<Path>> modules, Map<Path, Path> parents) {
+        this.root = root;
+        this.models = Collections.unmodifiableMap(models);
+        this.modules = modules;
+        this.parents = parents;
+    }
+
+    /**
+     * @return the path of the root pom.xml
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return every {@link Model} of the tree keyed by the path of its pom.xml
+     */
+    public Map<Path, Model> getModels() {
+        return models;
+    }
+
+    /**
+     * @param pom the path of a pom.xml in this tree
+     * @return the {@link Model} of the given pom.xml, or null if it is not part of this tree
+     */
+    public Model getModel(Path pom) {
+        return models.get(pom);
+    }
+
+    /**
+     * @param pom the path of a pom.xml in this tree
+     * @return the paths of the pom.xml files declared as modules of the given pom.xml
+     */
+    public List<Path> getModules(Path pom) {
+        return modules.getOrDefault(pom, Collections.emptyList());
+    }
+
+    /**
+     * @param pom the path of a pom.xml in this tree
+     * @return the path of the pom.xml declaring the given pom.xml as a module, or null for the root
+     */
+    public Path getParent(Path pom) {
+        return parents.get(pom);
+    }
+
+    static Reactor read(Path rootPom, Executor executor) {
+        Path root = rootPom.toAbsolutePath().normalize();
+        Walker walker = new Walker(executor);
+        try {
+            walker.load(root, Collections.emptySet()).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        // Rebuild the tree in declaration order, as modules complete in any order
+        Map<Path, Model> models = new LinkedHashMap<>();
+        Map<Path, List<Path>> modules = new LinkedHashMap<>();
+        collect(root, walker, models, modules);
+        return new Reactor(root, models, modules, new LinkedHashMap<>(walker.parents));
+    }
+
+    private static void collect(Path pom, Walker walker, Map<Path, Model> models, Map<Path, List<Path>> modules) {
+        models.put(pom, walker.models.get(pom));
+        List<Path> children = walker.modules.get(pom);
+        modules.put(pom, Collections.unmodifiableList(children));
+        for (Path child : children) {
+            collect(child, walker, models, modules);
+        }
+    }
+
+    private static class Walker {
+
+        private final Executor executor;
+
+        private final ConcurrentMap<Path, Model> models = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<Path, List<Path>> modules = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<Path, Path> parents = new ConcurrentHashMap<>();
+
+        Walker(Executor executor) {
+            this.executor = executor;
+        }
+
+        CompletableFuture<Void> load(Path pom, Set<Path> ancestors) {
+            return CompletableFuture.supplyAsync(() -> Maven.readModel(pom), executor).thenCompose(model -> {
+                models.put(pom, model);
+                Set<Path> path = new HashSet<>(ancestors);
+                path.add(pom);
+                List<Path> children = new ArrayList<>();
+                for (String module : model.getModules()) {
+                    Path child = resolve(pom, module);
+                    if (path.contains(child)) {
+                        throw new IllegalStateException("Module cycle detected: " + pom + " declares " + child);
+                    }
+                    Path previous = parents.putIfAbsent(child, pom);
+                    if (previous != null) {
+                        throw new IllegalStateException(
+                                "Duplicate module " + child + " declared by " + previous + " and " + pom);
+                    }
+                    children.add(child);
+                }
+                modules.put(pom, children);
+                CompletableFuture<?>[] subtrees = new CompletableFuture<?>[children.size()];
+                for (int i = 0; i < subtrees.length; i++) {
+                    subtrees[i] = load(children.get(i), path);
+                }
+                return CompletableFuture.allOf(subtrees);
+            });
+        }
+
+        private static Path resolve(Path pom, String module) {
+            Path child = pom.getParent().resolve(module).normalize();
+            if (Files.isDirectory(child)) {
+                child = child.resolve("pom.xml");
+            }
+            return child;
+        }
+    }
+}
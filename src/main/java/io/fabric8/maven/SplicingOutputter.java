@@ -0,0 +1,288 @@
+package io.fabric8.maven;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jdom2.CDATA;
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.EntityRef;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.Text;
+import org.jdom2.output.Format;
+import org.jdom2.output.support.AbstractXMLOutputProcessor;
+import org.jdom2.output.support.FormatStack;
+import org.jdom2.util.NamespaceStack;
+
+/**
+ * Writes a {@link Document} updated by {@link MavenJDOMWriter} by splicing the elements it modified into the text the
+ * document was parsed from.
+ * <p>
+ * Elements that were not modified are copied verbatim, together with their formatting and comments. Only the content
+ * of modified elements and new elements are written again. Elements are matched with the text by their position in
+ * document order, so the outputter must be created before the document is modified.
+ */
+final class SplicingOutputter {
+
+    private final String source;
+
+    private final Map<Element, Range> ranges;
+
+    private final Format format;
+
+    private final ScopedOutputProcessor processor = new ScopedOutputProcessor();
+
+    private SplicingOutputter(String source, Map<Element, Range> ranges, Format format) {
+        this.source = source;
+        this.ranges = ranges;
+        this.format = format;
+    }
+
+    /**
+     * @param source the text the document was parsed from
+     * @param document the document, not modified yet
+     * @param charset the charset the output will be encoded with
+     * @return an outputter, or null if the elements of the text could not be matched with the ones of the document
+     */
+    static SplicingOutputter create(String source, Document document, Charset charset) {
+        List<Range> found;
+        try {
+            found = scan(source);
+        } catch (IllegalArgumentException | NoSuchElementException e) {
+            return null;
+        }
+        List<Element> elements = new ArrayList<>(found.size());
+        collect(document.getRootElement(), elements);
+        if (elements.size() != found.size()) {
+            return null;
+        }
+        Map<Element, Range> ranges = new IdentityHashMap<>(elements.size() * 2);
+        for (int i = 0; i < elements.size(); i++) {
+            Element element = elements.get(i);
+            Range range = found.get(i);
+            if (!source.startsWith(element.getQualifiedName(), range.start + 1)) {
+                return null;
+            }
+            ranges.put(element, range);
+        }
+        int newLine = source.indexOf('\n');
+        String lineSeparator = newLine > 0 && source.charAt(newLine - 1) == '\r' ? "\r\n" : "\n";
+        Format format = Format.getRawFormat().setEncoding(charset.name()).setLineSeparator(lineSeparator);
+        return new SplicingOutputter(source, ranges, format);
+    }
+
+    /**
+     * @param document the document, updated since this outputter was created
+     * @param modified the elements whose own content was changed, as returned by
+     *        {@link MavenJDOMWriter#update(org.apache.maven.model.Model, Document)}
+     * @return the text of the updated document
+     */
+    String output(Document document, Set<Element> modified) {
+        Set<Element> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Element element : modified) {
+            Element ancestor = element;
+            while (ancestor != null && dirty.add(ancestor)) {
+                ancestor = ancestor.getParentElement();
+            }
+        }
+        Element root = document.getRootElement();
+        Range range = ranges.get(root);
+        StringWriter out = new StringWriter(source.length() + 256);
+        try {
+            out.write(source, 0, range.start);
+            write(out, root, dirty, modified);
+            out.write(source, range.end, source.length() - range.end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private void write(Writer out, Element element, Set<Element> dirty, Set<Element> modified) throws IOException {
+        Range range = ranges.get(element);
+        if (range == null || (range.isEmptyElement() && element.getContentSize() > 0)) {
+            processor.printElement(out, format, element);
+        } else if (!dirty.contains(element)) {
+            out.write(source, range.start, range.end - range.start);
+        } else if (!modified.contains(element)) {
+            // Same children: copy what lies between them
+            int position = range.startTagEnd;
+            out.write(source, range.start, position - range.start);
+            for (Element child : element.getChildren()) {
+                Range childRange = ranges.get(child);
+                out.write(source, position, childRange.start - position);
+                write(out, child, dirty, modified);
+                position = childRange.end;
+            }
+            out.write(source, position, range.end - position);
+        } else {
+            out.write(source, range.start, range.startTagEnd - range.start);
+            if (range.isEmptyElement()) {
+                return;
+            }
+            for (Content content : element.getContent()) {
+                write(out, content, dirty, modified);
+            }
+            out.write(source, range.endTagStart, range.end - range.endTagStart);
+        }
+    }
+
+    private void write(Writer out, Content content, Set<Element> dirty, Set<Element> modified) throws IOException {
+        switch (content.getCType()) {
+            case Element:
+                write(out, (Element) content, dirty, modified);
+                break;
+            case CDATA:
+                processor.process(out, format, (CDATA) content);
+                break;
+            case Text:
+                processor.process(out, format, (Text) content);
+                break;
+            case Comment:
+                processor.process(out, format, (Comment) content);
+                break;
+            case ProcessingInstruction:
+                processor.process(out, format, (ProcessingInstruction) content);
+                break;
+            case EntityRef:
+                processor.process(out, format, (EntityRef) content);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected content in element: " + content);
+        }
+    }
+
+    private static void collect(Element element, List<Element> elements) {
+        elements.add(element);
+        for (Element child : element.getChildren()) {
+            collect(child, elements);
+        }
+    }
+
+    /**
+     * Find the elements of the text, in document order. The text is expected to be well-formed, as it was parsed
+     * already.
+     */
+    private static List<Range> scan(String source) {
+        List<Range> ranges = new ArrayList<>();
+        Deque<Range> open = new ArrayDeque<>();
+        int index = source.indexOf('<');
+        while (index >= 0) {
+            int next;
+            if (source.startsWith("<!--", index)) {
+                next = after(source, "-->", index + 4);
+            } else if (source.startsWith("<![CDATA[", index)) {
+                next = after(source, "]]>", index + 9);
+            } else if (source.startsWith("<?", index)) {
+                next = after(source, "?>", index + 2);
+            } else if (source.startsWith("<!", index)) {
+                next = tagEnd(source, index);
+            } else if (source.startsWith("</", index)) {
+                next = after(source, ">", index + 2);
+                Range range = open.pop();
+                range.endTagStart = index;
+                range.end = next;
+            } else {
+                next = tagEnd(source, index);
+                Range range = new Range(index, next);
+                if (source.charAt(next - 2) == '/') {
+                    range.endTagStart = next;
+                    range.end = next;
+                } else {
+                    open.push(range);
+                }
+                ranges.add(range);
+            }
+            index = source.indexOf('<', next);
+        }
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException("Unclosed element");
+        }
+        return ranges;
+    }
+
+    private static int after(String source, String token, int from) {
+        int index = source.indexOf(token, from);
+        if (index < 0) {
+            throw new IllegalArgumentException("Missing " + token);
+        }
+        return index + token.length();
+    }
+
+    /**
+     * Find the end of a tag or of a declaration, skipping quoted values and internal subsets.
+     */
+    private static int tagEnd(String source, int from) {
+        char quote = 0;
+        int depth = 0;
+        for (int i = from + 1; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            } else if (c == '>' && depth <= 0) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated tag");
+    }
+
+    /**
+     * The offsets of an element in the text. An empty-element tag has no end tag: its content ends where its start
+     * tag ends.
+     */
+    private static class Range {
+
+        private final int start;
+
+        private final int startTagEnd;
+
+        private int endTagStart;
+
+        private int end;
+
+        Range(int start, int startTagEnd) {
+            this.start = start;
+            this.startTagEnd = startTagEnd;
+        }
+
+        boolean isEmptyElement() {
+            return end == startTagEnd;
+        }
+    }
+
+    /**
+     * Prints new elements without declaring again the namespaces in scope of their parent.
+     */
+    private static class ScopedOutputProcessor extends AbstractXMLOutputProcessor {
+
+        void printElement(Writer out, Format format, Element element) throws IOException {
+            Element parent = element.getParentElement();
+            NamespaceStack namespaces = parent == null ? new NamespaceStack()
+                    : new NamespaceStack(parent.getNamespacesInScope().toArray(new Namespace[0]));
+            printElement(out, new FormatStack(format), namespaces, element);
+        }
+    }
+}
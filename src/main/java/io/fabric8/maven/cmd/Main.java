@@ -4,12 +4,14 @@ import static java.util.Arrays.copyOfRange;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Parent;
-import org.apache.maven.model.merge.ModelMerger;
 
 import io.fabric8.maven.Maven;
+import io.fabric8.maven.PomHandle;
 import io.fabric8.maven.merge.SmartModelMerger;
 
 /**
@@ -54,13 +56,14 @@ public class Main {
         Path targetPath = Paths.get(target).toAbsolutePath();
         Model targetModel = Maven.readModel(targetPath);
         boolean sourceDominant = Boolean.getBoolean("sourceDominant");
-        ModelMerger merger = new SmartModelMerger();
+        SmartModelMerger merger = new SmartModelMerger();
 
+        List<Model> sourceModels = new ArrayList<>(sources.length);
         for (String source : sources) {
             Path sourcePath = Paths.get(source).toAbsolutePath();
-            Model sourceModel = Maven.readModel(sourcePath);
-            merger.merge(targetModel, sourceModel, sourceDominant, null);
+            sourceModels.add(Maven.readModel(sourcePath));
         }
+        merger.mergeAll(targetModel, sourceModels, sourceDominant);
         Maven.writeModel(targetModel);
     }
 
@@ -87,10 +90,9 @@ public class Main {
     }
 
     private static void updateMetadata(String target, String name, String description) {
-        Path targetPath = Paths.get(target).toAbsolutePath();
-        Model targetModel = Maven.readModel(targetPath);
-        targetModel.setName(name);
-        targetModel.setDescription(description);
-        Maven.writeModel(targetModel);
+        PomHandle handle = Maven.open(Paths.get(target).toAbsolutePath());
+        handle.getModel().setName(name);
+        handle.getModel().setDescription(description);
+        handle.save();
     }
 }
@@ -0,0 +1,150 @@
+package io.fabric8.maven.merge;
+
+import java.util.Objects;
+
+/**
+ * The key {@link SmartModelMerger} matches elements of the target and of the source with: up to four coordinates, such
+ * as the groupId, artifactId, type and classifier of a dependency.
+ * <p>
+ * Keys are immutable and compute their hash code once. They are obtained from an {@link Interner}, which returns the
+ * same instance every time the same coordinates are asked for, without allocating anything once the key exists.
+ */
+final class MergeKey {
+
+    private final String first;
+
+    private final String second;
+
+    private final String third;
+
+    private final String fourth;
+
+    private final int hash;
+
+    private MergeKey(String first, String second, String third, String fourth, int hash) {
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.fourth = fourth;
+        this.hash = hash;
+    }
+
+    private boolean matches(String first, String second, String third, String fourth) {
+        return Objects.equals(this.first, first) && Objects.equals(this.second, second)
+                && Objects.equals(this.third, third) && Objects.equals(this.fourth, fourth);
+    }
+
+    private static int hash(String first, String second, String third, String fourth) {
+        int hash = Objects.hashCode(first);
+        hash = 31 * hash + Objects.hashCode(second);
+        hash = 31 * hash + Objects.hashCode(third);
+        return 31 * hash + Objects.hashCode(fourth);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof MergeKey)) {
+            return false;
+        }
+        MergeKey other = (MergeKey) obj;
+        return hash == other.hash && matches(other.first, other.second, other.third, other.fourth);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.valueOf(first));
+        for (String coordinate : new String[] { second, third, fourth }) {
+            if (coordinate != null) {
+                sb.append(':').append(coordinate);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Interns keys in open-addressing tables, looked up by coordinates so that finding an existing key does not
+     * allocate a new one. The tables are thread-safe: keys are spread over segments locked independently, so that
+     * threads merging in parallel seldom wait for each other. A segment is cleared when it grows too large, so that a
+     * long-lived merger does not retain every key it has ever seen.
+     */
+    static final class Interner {
+
+        private static final int SEGMENTS = 16;
+
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        Interner() {
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment();
+            }
+        }
+
+        MergeKey intern(String first) {
+            return intern(first, null, null, null);
+        }
+
+        MergeKey intern(String first, String second) {
+            return intern(first, second, null, null);
+        }
+
+        MergeKey intern(String first, String second, String third, String fourth) {
+            int hash = hash(first, second, third, fourth);
+            int spread = hash ^ (hash >>> 16);
+            return segments[spread >>> 28].intern(first, second, third, fourth, hash, spread);
+        }
+    }
+
+    private static final class Segment {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private static final int MAX_SIZE = 1 << 12;
+
+        private MergeKey[] table = new MergeKey[INITIAL_CAPACITY];
+
+        private int size;
+
+        synchronized MergeKey intern(String first, String second, String third, String fourth, int hash, int spread) {
+            int mask = table.length - 1;
+            for (int i = spread & mask; table[i] != null; i = (i + 1) & mask) {
+                MergeKey key = table[i];
+                if (key.hash == hash && key.matches(first, second, third, fourth)) {
+                    return key;
+                }
+            }
+            if (size >= MAX_SIZE) {
+                table = new MergeKey[INITIAL_CAPACITY];
+                size = 0;
+            } else if ((size + 1) * 2 > table.length) {
+                MergeKey[] old = table;
+                table = new MergeKey[old.length * 2];
+                for (MergeKey key : old) {
+                    if (key != null) {
+                        insert(key);
+                    }
+                }
+            }
+            MergeKey key = new MergeKey(first, second, third, fourth, hash);
+            insert(key);
+            size++;
+            return key;
+        }
+
+        private void insert(MergeKey key) {
+            int mask = table.length - 1;
+            int i = (key.hash ^ (key.hash >>> 16)) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+        }
+    }
+}
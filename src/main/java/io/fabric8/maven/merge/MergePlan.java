@@ -0,0 +1,146 @@
+package io.fabric8.maven.merge;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginContainer;
+import org.apache.maven.model.Profile;
+
+/**
+ * A source {@link Model} compiled by {@link SmartModelMerger#compile(Model, boolean)} to be merged into many targets.
+ * <p>
+ * The plan keeps its own copy of the source, with its dependencies, managed dependencies, plugins and profiles keyed in
+ * advance and its modules deduplicated, so applying it to a target only computes the keys of the target. Applying the
+ * plan gives the same result as {@link SmartModelMerger#merge(Model, Model, boolean, Map)} with the source.
+ * <p>
+ * A plan is immutable and can be applied from several threads at once. The elements of its source are put in the
+ * targets as they are, and are shared by all of them: they must not be modified. Profiles are the exception: as later
+ * merges may merge other profiles into them, each target gets its own copy.
+ */
+public final class MergePlan {
+
+    private final SmartModelMerger merger;
+
+    private final Model source;
+
+    private final boolean sourceDominant;
+
+    private final Map<ModelBase, Map<Object, Dependency>> dependencies = new IdentityHashMap<>();
+
+    private final Map<DependencyManagement, Map<Object, Dependency>> managedDependencies = new IdentityHashMap<>();
+
+    private final Map<PluginContainer, Map<Object, Plugin>> plugins = new IdentityHashMap<>();
+
+    private final Map<ModelBase, Set<String>> modules = new IdentityHashMap<>();
+
+    private final Object[] profileKeys;
+
+    MergePlan(SmartModelMerger merger, Model source, boolean sourceDominant) {
+        this.merger = merger;
+        this.source = source.clone();
+        this.sourceDominant = sourceDominant;
+        index(this.source);
+        List<Profile> profiles = this.source.getProfiles();
+        profileKeys = new Object[profiles.size()];
+        for (int i = 0; i < profileKeys.length; i++) {
+            Profile profile = profiles.get(i);
+            profileKeys[i] = merger.getProfileKey(profile);
+            index(profile);
+        }
+        Build build = this.source.getBuild();
+        if (build != null) {
+            index(build);
+            if (build.getPluginManagement() != null) {
+                index(build.getPluginManagement());
+            }
+        }
+        // Merge into a target holding every profile once, so that the getters of the source that initialize their
+        // value lazily are all called here, before the plan is shared with other threads
+        Model warmUp = new Model();
+        for (Profile profile : profiles) {
+            Profile empty = new Profile();
+            empty.setId(profile.getId());
+            warmUp.addProfile(empty);
+        }
+        apply(warmUp);
+    }
+
+    /**
+     * Merge the source of this plan into the target
+     *
+     * @param target the model to merge into
+     */
+    public void apply(Model target) {
+        Objects.requireNonNull(target, "target cannot be null");
+        merger.apply(this, target, source, sourceDominant);
+    }
+
+    /**
+     * @return true if the values of the source win over the ones of the targets
+     */
+    public boolean isSourceDominant() {
+        return sourceDominant;
+    }
+
+    Map<Object, Dependency> dependencies(ModelBase base) {
+        return dependencies.get(base);
+    }
+
+    Map<Object, Dependency> managedDependencies(DependencyManagement dependencyManagement) {
+        return managedDependencies.get(dependencyManagement);
+    }
+
+    Map<Object, Plugin> plugins(PluginContainer container) {
+        return plugins.get(container);
+    }
+
+    Set<String> modules(ModelBase base) {
+        return modules.get(base);
+    }
+
+    Object[] profileKeys() {
+        return profileKeys;
+    }
+
+    private void index(ModelBase base) {
+        dependencies.put(base, index(base.getDependencies(), merger::getDependencyKey));
+        if (base.getDependencyManagement() != null) {
+            managedDependencies.put(base.getDependencyManagement(),
+                    index(base.getDependencyManagement().getDependencies(), merger::getDependencyKey));
+        }
+        modules.put(base, Collections.unmodifiableSet(new LinkedHashSet<>(base.getModules())));
+    }
+
+    private void index(PluginContainer container) {
+        plugins.put(container, index(container.getPlugins(), merger::getPluginKey));
+    }
+
+    /**
+     * Key the elements the way {@link org.apache.maven.model.merge.ModelMerger} does when they are merged one by one:
+     * of the elements sharing a key, the last one wins when the source is dominant, the first one otherwise.
+     */
+    private <T> Map<Object, T> index(List<T> elements, Function<T, Object> key) {
+        Map<Object, T> index = new LinkedHashMap<>(elements.size() * 2);
+        for (T element : elements) {
+            if (sourceDominant) {
+                index.put(key.apply(element), element);
+            } else {
+                index.putIfAbsent(key.apply(element), element);
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+}
@@ -0,0 +1,83 @@
+package io.fabric8.maven.merge;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.model.InputLocation;
+import org.apache.maven.model.InputSource;
+
+/**
+ * Copies the path of the target of a merge that the merge modifies, so that the original target is left untouched
+ * while the rest of it is shared.
+ * <p>
+ * {@link org.apache.maven.model.merge.ModelMerger} only modifies an object of the target (the model, its build, a
+ * profile...) when the source has the same object, and replaces the lists it merges instead of modifying them. So a
+ * copy of the target only needs a shallow copy of each object the source also has, recursively.
+ */
+final class PathCopier {
+
+    private static final String MODEL_PACKAGE = "org.apache.maven.model";
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private PathCopier() {
+    }
+
+    /**
+     * @param target an object of the target of a merge
+     * @param source the matching object of the source, of the same class
+     * @return a copy of the target, sharing everything the source cannot modify
+     */
+    static <T> T copy(T target, Object source) {
+        try {
+            @SuppressWarnings("unchecked")
+            T copy = (T) target.getClass().getConstructor().newInstance();
+            for (Field field : FIELDS.get(target.getClass())) {
+                // Null values are copied too, as the constructor may have set a default value
+                Object value = field.get(target);
+                if (value instanceof List && !(value instanceof ArrayList)) {
+                    // Lists kept by previous merges are merged in place
+                    value = new ArrayList<>((List<?>) value);
+                } else if (value instanceof Map && !(value instanceof Properties)) {
+                    // Locations are added to the map
+                    value = new LinkedHashMap<>((Map<?, ?>) value);
+                } else if (value != null && isModel(field.getType())) {
+                    Object sourceValue = field.get(source);
+                    if (sourceValue != null) {
+                        value = copy(value, sourceValue);
+                    }
+                }
+                field.set(copy, value);
+            }
+            return copy;
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+                | InvocationTargetException e) {
+            throw new IllegalStateException("Could not copy " + target.getClass().getName(), e);
+        }
+    }
+
+    private static boolean isModel(Class<?> type) {
+        return MODEL_PACKAGE.equals(type.getPackageName()) && type != InputLocation.class
+                && type != InputSource.class;
+    }
+}
@@ -1,58 +1,175 @@
 package io.fabric8.maven.merge;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
 
 import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
 import org.apache.maven.model.InputLocation;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.ModelBase;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginContainer;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.model.Profile;
+import org.apache.maven.model.Repository;
 import org.apache.maven.model.merge.ModelMerger;
 
 import io.fabric8.maven.SortedProperties;
 
 /**
+ * A {@link ModelMerger} that matches the elements of both models by their coordinates: dependencies by groupId,
+ * artifactId, type and classifier, exclusions and plugins by groupId and artifactId, and executions, repositories and
+ * profiles by id. The keys are interned by each merger, so merging many models does not create new keys for
+ * coordinates already seen.
+ *
  * @author <a href="mailto:ggastald@redhat.com">George Gastaldi</a>
  */
 public class SmartModelMerger extends ModelMerger {
 
+    /**
+     * The number of sources below which a parallel merge merges them sequentially
+     */
+    private static final int PARALLEL_THRESHOLD = 16;
+
+    private final MergeKey.Interner keys = new MergeKey.Interner();
+
+    /**
+     * Merge all the sources into the target, in order. The result is the same as calling
+     * {@link #merge(Model, Model, boolean, Map)} with each source in turn, but the indexes of the properties, modules and
+     * profiles of the target are built once and kept up to date, instead of being rebuilt for every source, so the cost
+     * grows linearly with the total size of the models.
+     *
+     * @param target the model to merge into
+     * @param sources the models to merge, in order; null elements are ignored
+     * @param sourceDominant true if the values of the sources win over the ones of the target
+     */
+    public void mergeAll(Model target, List<Model> sources, boolean sourceDominant) {
+        Objects.requireNonNull(target, "target cannot be null");
+        Indexes indexes = new Indexes();
+        Map<Object, Object> context = new HashMap<>();
+        context.put(Indexes.class, indexes);
+        for (Model source : sources) {
+            if (source != null) {
+                mergeModel(target, source, sourceDominant, context);
+            }
+        }
+        indexes.apply();
+    }
+
+    /**
+     * Merge all the sources into the target, in parallel on the given {@link ForkJoinPool}. The sources are merged
+     * pairwise in a balanced tree, the earlier source of each pair acting as the target of the later one, and the
+     * result is merged into the target last. As the merge rules only depend on the position of the sources, the result
+     * is the same as with {@link #mergeAll(Model, List, boolean)}.
+     * <p>
+     * As with sequential merges, elements of the sources are put in the merged models as they are, and may be modified
+     * by the sources that follow: the sources should not be used afterwards.
+     *
+     * @param target the model to merge into
+     * @param sources the models to merge, in order; null elements are ignored
+     * @param sourceDominant true if the values of the sources win over the ones of the target
+     * @param pool the pool to merge on, or null to merge sequentially
+     */
+    public void mergeAll(Model target, List<Model> sources, boolean sourceDominant, ForkJoinPool pool) {
+        Objects.requireNonNull(target, "target cannot be null");
+        if (pool == null || sources.size() <= PARALLEL_THRESHOLD) {
+            mergeAll(target, sources, sourceDominant);
+        } else {
+            merge(target, pool.invoke(new MergeTask(sources, sourceDominant)), sourceDominant, null);
+        }
+    }
+
     @Override
     protected Object getDependencyKey(Dependency dependency) {
-        return dependency.getGroupId() + ":" + dependency.getArtifactId();
+        return keys.intern(dependency.getGroupId(), dependency.getArtifactId(), dependency.getType(),
+                dependency.getClassifier());
+    }
+
+    @Override
+    protected Object getExclusionKey(Exclusion exclusion) {
+        return keys.intern(exclusion.getGroupId(), exclusion.getArtifactId());
+    }
+
+    @Override
+    protected Object getPluginKey(Plugin plugin) {
+        return keys.intern(plugin.getGroupId(), plugin.getArtifactId());
+    }
+
+    @Override
+    protected Object getPluginExecutionKey(PluginExecution pluginExecution) {
+        return keys.intern(pluginExecution.getId());
+    }
+
+    @Override
+    protected Object getRepositoryKey(Repository repository) {
+        return keys.intern(repository.getId());
     }
 
     @Override
     protected void mergeModelBase_Properties(ModelBase target, ModelBase source, boolean sourceDominant,
             Map<Object, Object> context) {
-        Properties merged = new SortedProperties();
-        if (sourceDominant) {
-            merged.putAll(target.getProperties());
-            merged.putAll(source.getProperties());
+        Indexes indexes = (Indexes) context.get(Indexes.class);
+        if (indexes != null) {
+            Properties merged = indexes.properties.get(target);
+            if (merged == null) {
+                merged = new SortedProperties();
+                merged.putAll(target.getProperties());
+                target.setProperties(merged);
+                indexes.properties.put(target, merged);
+            }
+            if (sourceDominant) {
+                merged.putAll(source.getProperties());
+            } else {
+                for (Map.Entry<Object, Object> entry : source.getProperties().entrySet()) {
+                    merged.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
         } else {
-            merged.putAll(source.getProperties());
-            merged.putAll(target.getProperties());
+            Properties merged = new SortedProperties();
+            if (sourceDominant) {
+                merged.putAll(target.getProperties());
+                merged.putAll(source.getProperties());
+            } else {
+                merged.putAll(source.getProperties());
+                merged.putAll(target.getProperties());
+            }
+            target.setProperties(merged);
         }
-        target.setProperties(merged);
         target.setLocation("properties", InputLocation.merge(target.getLocation("properties"),
                 source.getLocation("properties"), sourceDominant));
     }
 
     @Override
     protected Object getProfileKey(Profile profile) {
-        return profile.getId();
+        return keys.intern(profile.getId());
     }
 
     @Override
     protected void mergeModelBase_Modules(ModelBase target, ModelBase source, boolean sourceDominant,
             Map<Object, Object> context) {
+        Indexes indexes = (Indexes) context.get(Indexes.class);
+        if (indexes != null) {
+            indexes.addModules(target, source.getModules());
+            return;
+        }
+        MergePlan plan = (MergePlan) context.get(MergePlan.class);
+        Set<String> src = plan == null ? null : plan.modules(source);
         Set<String> set = new LinkedHashSet<>();
-        set.addAll(source.getModules());
+        set.addAll(src == null ? source.getModules() : src);
         set.addAll(target.getModules());
         target.setModules(new ArrayList<>(set));
     }
@@ -62,29 +179,221 @@ public class SmartModelMerger extends ModelMerger {
             Map<Object, Object> context) {
         List<Profile> src = source.getProfiles();
         if (!src.isEmpty()) {
-            List<Profile> tgt = target.getProfiles();
-            Map<Object, Profile> merged = new LinkedHashMap<>((src.size() + tgt.size()) * 2);
-
-            for (Profile element : tgt) {
-                Object key = getProfileKey(element);
-                merged.put(key, element);
+            Indexes indexes = (Indexes) context.get(Indexes.class);
+            Map<Object, Profile> merged = indexes == null ? null : indexes.profiles.get(target);
+            if (merged == null) {
+                List<Profile> tgt = target.getProfiles();
+                merged = new LinkedHashMap<>((src.size() + tgt.size()) * 2);
+                for (Profile element : tgt) {
+                    Object key = getProfileKey(element);
+                    merged.put(key, element);
+                }
+                if (indexes != null) {
+                    indexes.profiles.put(target, merged);
+                }
             }
 
-            for (Profile element : src) {
-                Object key = getProfileKey(element);
+            MergePlan plan = (MergePlan) context.get(MergePlan.class);
+            Object[] keys = plan == null ? null : plan.profileKeys();
+            for (int i = 0; i < src.size(); i++) {
+                Profile element = src.get(i);
+                Object key = keys == null ? getProfileKey(element) : keys[i];
                 if (sourceDominant || !merged.containsKey(key)) {
                     Profile targetProfile = merged.get(key);
                     if (targetProfile != null) {
                         // Target Profile already exists. Merge contents
+                        if (context.containsKey(PathCopier.class)) {
+                            targetProfile = PathCopier.copy(targetProfile, element);
+                        }
                         mergeProfile(targetProfile, element, sourceDominant, context);
                         merged.put(key, targetProfile);
                     } else {
-                        merged.put(key, element);
+                        // The profiles of a plan must not be modified by the merges into the targets
+                        merged.put(key, plan == null ? element : element.clone());
                     }
                 }
             }
 
-            target.setProfiles(new ArrayList<>(merged.values()));
+            if (indexes == null) {
+                target.setProfiles(new ArrayList<>(merged.values()));
+            }
+        }
+    }
+
+    /**
+     * Merge the source into a new model, leaving both models untouched. Only the objects of the target that the merge
+     * modifies are copied, and the new model shares the rest of the target, as well as the elements of the source it
+     * holds: all three models should not be modified in place afterwards, but they can be merged again with this
+     * method.
+     *
+     * @param target the model to merge into
+     * @param source the model to merge
+     * @param sourceDominant true if the values of the source win over the ones of the target
+     * @return the merged model
+     */
+    public Model merged(Model target, Model source, boolean sourceDominant) {
+        Objects.requireNonNull(target, "target cannot be null");
+        if (source == null) {
+            return target;
+        }
+        Model merged = PathCopier.copy(target, source);
+        Map<Object, Object> context = new HashMap<>();
+        context.put(PathCopier.class, Boolean.TRUE);
+        mergeModel(merged, source, sourceDominant, context);
+        return merged;
+    }
+
+    /**
+     * Compile the source into a {@link MergePlan}, to merge it into many targets
+     *
+     * @param source the model to merge into the targets
+     * @param sourceDominant true if the values of the source win over the ones of the targets
+     * @return the plan
+     */
+    public MergePlan compile(Model source, boolean sourceDominant) {
+        Objects.requireNonNull(source, "source cannot be null");
+        return new MergePlan(this, source, sourceDominant);
+    }
+
+    /**
+     * Merge the copy of the source held by the plan, looking up its keyed elements in the plan
+     */
+    void apply(MergePlan plan, Model target, Model source, boolean sourceDominant) {
+        Map<Object, Object> context = new HashMap<>();
+        context.put(MergePlan.class, plan);
+        mergeModel(target, source, sourceDominant, context);
+    }
+
+    @Override
+    protected void mergeModelBase_Dependencies(ModelBase target, ModelBase source, boolean sourceDominant,
+            Map<Object, Object> context) {
+        MergePlan plan = (MergePlan) context.get(MergePlan.class);
+        Map<Object, Dependency> src = plan == null ? null : plan.dependencies(source);
+        if (src == null) {
+            super.mergeModelBase_Dependencies(target, source, sourceDominant, context);
+        } else if (!src.isEmpty()) {
+            target.setDependencies(merge(target.getDependencies(), src, sourceDominant, this::getDependencyKey));
+        }
+    }
+
+    @Override
+    protected void mergeDependencyManagement_Dependencies(DependencyManagement target, DependencyManagement source,
+            boolean sourceDominant, Map<Object, Object> context) {
+        MergePlan plan = (MergePlan) context.get(MergePlan.class);
+        Map<Object, Dependency> src = plan == null ? null : plan.managedDependencies(source);
+        if (src == null) {
+            super.mergeDependencyManagement_Dependencies(target, source, sourceDominant, context);
+        } else if (!src.isEmpty()) {
+            target.setDependencies(merge(target.getDependencies(), src, sourceDominant, this::getDependencyKey));
+        }
+    }
+
+    @Override
+    protected void mergePluginContainer_Plugins(PluginContainer target, PluginContainer source, boolean sourceDominant,
+            Map<Object, Object> context) {
+        MergePlan plan = (MergePlan) context.get(MergePlan.class);
+        Map<Object, Plugin> src = plan == null ? null : plan.plugins(source);
+        if (src == null) {
+            super.mergePluginContainer_Plugins(target, source, sourceDominant, context);
+        } else if (!src.isEmpty()) {
+            target.setPlugins(merge(target.getPlugins(), src, sourceDominant, this::getPluginKey));
+        }
+    }
+
+    /**
+     * Merge keyed elements into a list, the way {@link ModelMerger} does
+     */
+    private static <T> List<T> merge(List<T> target, Map<Object, T> source, boolean sourceDominant,
+            Function<T, Object> keys) {
+        Map<Object, T> merged = new LinkedHashMap<>((target.size() + source.size()) * 2);
+        for (T element : target) {
+            merged.put(keys.apply(element), element);
+        }
+        for (Map.Entry<Object, T> entry : source.entrySet()) {
+            if (sourceDominant) {
+                merged.put(entry.getKey(), entry.getValue());
+            } else {
+                merged.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Merges a range of sources into a new model
+     */
+    private final class MergeTask extends RecursiveTask<Model> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Model> sources;
+
+        private final boolean sourceDominant;
+
+        MergeTask(List<Model> sources, boolean sourceDominant) {
+            this.sources = sources;
+            this.sourceDominant = sourceDominant;
+        }
+
+        @Override
+        protected Model compute() {
+            if (sources.size() <= PARALLEL_THRESHOLD) {
+                Model merged = new Model();
+                // Unlike the other fields, the packaging has a default value that would win over the sources
+                merged.setPackaging(null);
+                mergeAll(merged, sources, sourceDominant);
+                return merged;
+            }
+            int middle = sources.size() / 2;
+            MergeTask first = new MergeTask(sources.subList(0, middle), sourceDominant);
+            first.fork();
+            Model second = new MergeTask(sources.subList(middle, sources.size()), sourceDominant).compute();
+            Model merged = first.join();
+            merge(merged, second, sourceDominant, null);
+            return merged;
+        }
+    }
+
+    /**
+     * The indexes of the targets of {@link #mergeAll(Model, List, boolean)}, from the model itself to the profiles
+     * merged into it, which are only written back to the targets once all the sources are merged.
+     */
+    private static final class Indexes {
+
+        private final Map<ModelBase, Properties> properties = new IdentityHashMap<>();
+
+        /**
+         * The modules of the target, followed by the ones of each source, all in reverse order. Each source is merged
+         * before the modules already there, keeping the first occurrence of each: that is the last one in this list.
+         */
+        private final Map<ModelBase, List<String>> modules = new IdentityHashMap<>();
+
+        private final Map<Model, Map<Object, Profile>> profiles = new IdentityHashMap<>();
+
+        void addModules(ModelBase target, List<String> source) {
+            List<String> reversed = modules.get(target);
+            if (reversed == null) {
+                reversed = new ArrayList<>(target.getModules());
+                Collections.reverse(reversed);
+                modules.put(target, reversed);
+            }
+            for (int i = source.size() - 1; i >= 0; i--) {
+                reversed.add(source.get(i));
+            }
+        }
+
+        void apply() {
+            for (Map.Entry<ModelBase, List<String>> entry : modules.entrySet()) {
+                List<String> reversed = entry.getValue();
+                Set<String> set = new LinkedHashSet<>();
+                for (int i = reversed.size() - 1; i >= 0; i--) {
+                    set.add(reversed.get(i));
+                }
+                entry.getKey().setModules(new ArrayList<>(set));
+            }
+            for (Map.Entry<Model, Map<Object, Profile>> entry : profiles.entrySet()) {
+                entry.getKey().setProfiles(new ArrayList<>(entry.getValue().values()));
+            }
         }
     }
 }
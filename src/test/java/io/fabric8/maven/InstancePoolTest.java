@@ -0,0 +1,48 @@
+package io.fabric8.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class InstancePoolTest {
+
+    @Test
+    void should_reuse_released_instances() {
+        InstancePool<StringBuilder> pool = new InstancePool<>(StringBuilder::new, 2);
+
+        StringBuilder first = pool.acquire();
+        pool.release(first);
+
+        assertThat(pool.acquire()).isSameAs(first);
+    }
+
+    @Test
+    void should_create_instances_when_none_is_idle() {
+        AtomicInteger created = new AtomicInteger();
+        InstancePool<Object> pool = new InstancePool<>(() -> created.incrementAndGet(), 2);
+
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(created).hasValue(2);
+    }
+
+    @Test
+    void should_keep_a_bounded_number_of_idle_instances() {
+        InstancePool<Object> pool = new InstancePool<>(Object::new, 2);
+        Object a = pool.acquire();
+        Object b = pool.acquire();
+        Object c = pool.acquire();
+
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+
+        assertThat(pool.acquire()).isSameAs(a);
+        assertThat(pool.acquire()).isSameAs(b);
+        assertThat(pool.acquire()).isNotIn(a, b, c);
+    }
+}
@@ -0,0 +1,459 @@
+package io.fabric8.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.InputLocation;
+import org.apache.maven.model.InputSource;
+import org.apache.maven.model.Model;
+import org.assertj.core.api.Assertions;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of the element descriptors of {@link MavenJDOMWriter}. The documents written and the elements
+ * reported as modified are compared with a corpus recorded with the hand-written update methods the descriptors
+ * replaced. Run with {@code -Dwriter.corpus.record=true} to record the corpus again after an intended change of the
+ * output.
+ */
+class MavenJDOMWriterTest {
+
+    /**
+     * Read from the sources, as other tests modify the copies on the classpath
+     */
+    private static final Path RESOURCES = Paths.get("src/test/resources/io/fabric8/maven");
+
+    private static final Path CORPUS = RESOURCES.resolve("writer");
+
+    private static final boolean RECORD = Boolean.getBoolean("writer.corpus.record");
+
+    private static final String[] POMS = { "parent/parent-pom.xml", "cmd/source-pom.xml", "cmd/target-pom.xml",
+            "cmd/result-pom.xml", "cmd/properties/source-pom.xml", "cmd/properties/target-pom.xml",
+            "cmd/properties/result-pom.xml" };
+
+    private static final int EDITS = 300;
+
+    /**
+     * Few values, including the defaults the writer omits, so that keys of list entries collide
+     */
+    private static final String[] WORDS = { "jar", "pom", "default", "HEAD", "../pom.xml", "org.apache.maven.plugins",
+            "mail", "2.0", "compile", "true", "false", "a", "b", "1.0", "${x}", "Café & <co>" };
+
+    private static final String[] NAMES = { "a", "b", "item", "name", "value" };
+
+    private static final Set<String> SKIPPED = new HashSet<>(Arrays.asList("setPomFile", "setLocation",
+            "setLocations", "setImportedFrom", "setModelEncoding", "setOtherLocation"));
+
+    private static final Format FORMAT = Format.getRawFormat().setLineSeparator("\n");
+
+    @Test
+    void should_write_every_element_of_a_full_model() throws Exception {
+        Random random = new Random(1);
+        Model model = new Model();
+        populate(model, random, true);
+        Document document = document("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n</project>\n");
+
+        List<String> modified = paths(new MavenJDOMWriter().update(model, document));
+        assertGolden("full-pom.xml", output(document));
+        assertGolden("full-pom.modified", String.join("\n", modified) + "\n");
+        // Everything written is read back and written again the same way
+        Document rewritten = document("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n</project>\n");
+        new MavenJDOMWriter().update(Maven.readModel(new StringReader(output(document))), rewritten);
+        assertThat(output(rewritten)).isEqualTo(output(document));
+
+        for (int i = 0; i < 20; i++) {
+            mutate(model, random);
+        }
+        modified = paths(new MavenJDOMWriter().update(model, document));
+        assertGolden("edited-pom.xml", output(document));
+        assertGolden("edited-pom.modified", String.join("\n", modified) + "\n");
+    }
+
+    @Test
+    void should_match_recorded_corpus_of_random_edits() throws Exception {
+        List<String> lines = new ArrayList<>();
+        MavenJDOMWriter writer = new MavenJDOMWriter();
+        for (int i = 0; i < POMS.length; i++) {
+            Path pom = RESOURCES.resolve(POMS[i]);
+            Random random = new Random(i);
+            Model model = Maven.readModel(pom);
+            Document document = document(new String(Files.readAllBytes(pom), StandardCharsets.UTF_8));
+            for (int step = 0; step < EDITS / POMS.length; step++) {
+                for (int edits = 1 + random.nextInt(3); edits > 0; edits--) {
+                    mutate(model, random);
+                }
+                List<String> modified = paths(writer.update(model, document));
+                lines.add(POMS[i] + " " + step + " " + sha256(output(document)) + " "
+                        + sha256(String.join("\n", modified)));
+            }
+        }
+        assertGolden("corpus.txt", String.join("\n", lines) + "\n");
+    }
+
+    @Test
+    void should_write_same_document_with_pool() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MavenJDOMWriter sequential = new MavenJDOMWriter();
+            MavenJDOMWriter concurrent = new MavenJDOMWriter();
+            concurrent.setPool(pool);
+            for (int i = 0; i < POMS.length; i++) {
+                Path pom = RESOURCES.resolve(POMS[i]);
+                String content = new String(Files.readAllBytes(pom), StandardCharsets.UTF_8);
+                Random random = new Random(i);
+                Model model = Maven.readModel(pom);
+                Document expected = document(content);
+                Document actual = document(content);
+                for (int step = 0; step < 20; step++) {
+                    mutate(model, random);
+                    List<String> modified = paths(sequential.update(model, expected));
+                    assertThat(paths(concurrent.update(model, actual))).isEqualTo(modified);
+                    assertThat(output(actual)).isEqualTo(output(expected));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void should_only_visit_changed_sections() throws Exception {
+        int[] visits = new int[2];
+        int[] sizes = { 100, 10_000 };
+        for (int i = 0; i < sizes.length; i++) {
+            Path pom = RESOURCES.resolve("parent/parent-pom.xml");
+            Model model = Maven.readModel(pom);
+            Document document = document(new String(Files.readAllBytes(pom), StandardCharsets.UTF_8));
+            for (int j = 0; j < sizes[i]; j++) {
+                Dependency dependency = new Dependency();
+                dependency.setGroupId("org.example");
+                dependency.setArtifactId("dependency-" + j);
+                model.addDependency(dependency);
+            }
+            MavenJDOMWriter writer = new MavenJDOMWriter();
+            writer.update(model, document);
+            assertThat(writer.getVisitCount()).isGreaterThan(sizes[i]);
+
+            Model baseline = model.clone();
+            model.setName("my-name");
+            writer.update(model, baseline, document);
+            visits[i] = writer.getVisitCount();
+            assertThat(output(document)).contains("<name>my-name</name>");
+
+            model.getDependencies().get(0).setVersion("9.9");
+            writer.update(model, baseline, document);
+            assertThat(writer.getVisitCount()).isGreaterThan(sizes[i]);
+            assertThat(output(document)).contains("<version>9.9</version>");
+        }
+        assertThat(visits[1]).isEqualTo(visits[0]);
+    }
+
+    @Test
+    void should_await_every_section_when_one_fails() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CountDownLatch propertiesStarted = new CountDownLatch(1);
+            AtomicBoolean propertiesUpdated = new AtomicBoolean();
+            Properties properties = new Properties() {
+                @Override
+                public Set<Object> keySet() {
+                    propertiesStarted.countDown();
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    propertiesUpdated.set(true);
+                    return super.keySet();
+                }
+            };
+            properties.setProperty("foo", "bar");
+            // The dependencies fail once the properties, updated after them, are being updated
+            List<Dependency> dependencies = new ArrayList<Dependency>(Collections.singletonList(null)) {
+                @Override
+                public Iterator<Dependency> iterator() {
+                    try {
+                        propertiesStarted.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.iterator();
+                }
+            };
+            Model model = new Model();
+            model.setProperties(properties);
+            model.setDependencies(dependencies);
+            MavenJDOMWriter writer = new MavenJDOMWriter();
+            writer.setPool(pool);
+            Document document = document("<project></project>");
+
+            Assertions.assertThatThrownBy(() -> writer.update(model, document))
+                    .isInstanceOf(NullPointerException.class);
+            assertThat(propertiesUpdated).isTrue();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void assertGolden(String name, String actual) throws Exception {
+        Path golden = CORPUS.resolve(name);
+        if (RECORD) {
+            Files.createDirectories(CORPUS);
+            Files.write(golden, actual.getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(actual).as(name).isEqualTo(new String(Files.readAllBytes(golden), StandardCharsets.UTF_8));
+    }
+
+    private static Document document(String content) throws Exception {
+        return new SAXBuilder().build(new StringReader(content));
+    }
+
+    private static String output(Document document) {
+        return new XMLOutputter(FORMAT).outputString(document);
+    }
+
+    /**
+     * @return the sorted paths of the elements, by index among the siblings of the same name
+     */
+    private static List<String> paths(Set<Element> elements) {
+        List<String> paths = new ArrayList<>();
+        for (Element element : elements) {
+            StringBuilder path = new StringBuilder();
+            Element current = element;
+            while (current != null) {
+                Element parent = current.getParentElement();
+                int index = parent == null ? 0
+                        : parent.getChildren(current.getName(), current.getNamespace())
+                                .indexOf(current);
+                path.insert(0, "/" + current.getName() + "[" + index + "]");
+                current = parent;
+            }
+            paths.add(element.getDocument() == null ? "detached " + path : path.toString());
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private static String sha256(String value) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    // Random models
+
+    /**
+     * Set the properties of a bean of the model, all of them if full or about a third of them otherwise
+     */
+    private static void populate(Object bean, Random random, boolean full) throws Exception {
+        for (Method setter : setters(bean.getClass()).values()) {
+            if (full || random.nextInt(3) == 0) {
+                setter.invoke(bean, value(setter, random, full));
+            }
+        }
+    }
+
+    /**
+     * Change a random property of a bean of the model, preferably deep in the tree
+     */
+    @SuppressWarnings("unchecked")
+    private static void mutate(Object bean, Random random) throws Exception {
+        List<Method> setters = new ArrayList<>(setters(bean.getClass()).values());
+        Method setter = setters.get(random.nextInt(setters.size()));
+        Object current = getter(setter) == null ? null : getter(setter).invoke(bean);
+        int choice = random.nextInt(4);
+        if (isModel(current) && choice < 3) {
+            mutate(current, random);
+        } else if (current instanceof List && !((List<?>) current).isEmpty() && choice < 3) {
+            mutate((List<Object>) current, setter, random);
+        } else if (current instanceof Properties && choice < 3) {
+            Properties properties = (Properties) current;
+            String key = NAMES[random.nextInt(NAMES.length)];
+            if (properties.containsKey(key) && random.nextBoolean()) {
+                properties.remove(key);
+            } else {
+                properties.setProperty(key, word(random));
+            }
+        } else if (current instanceof Xpp3Dom && choice < 3) {
+            mutate((Xpp3Dom) current, random);
+        } else if (!setter.getParameterTypes()[0].isPrimitive() && random.nextInt(4) == 0) {
+            setter.invoke(bean, (Object) null);
+        } else {
+            setter.invoke(bean, value(setter, random, false));
+        }
+    }
+
+    private static void mutate(List<Object> list, Method setter, Random random) throws Exception {
+        Class<?> type = elementType(setter);
+        int index = random.nextInt(list.size());
+        switch (random.nextInt(5)) {
+            case 0:
+                list.remove(index);
+                break;
+            case 1:
+                list.add(random.nextInt(list.size() + 1), value(type, random, false));
+                break;
+            case 2:
+                Collections.shuffle(list, random);
+                break;
+            case 3:
+                list.set(index, value(type, random, false));
+                break;
+            default:
+                if (isModel(list.get(index))) {
+                    mutate(list.get(index), random);
+                } else {
+                    list.set(index, value(type, random, false));
+                }
+                break;
+        }
+    }
+
+    private static void mutate(Xpp3Dom dom, Random random) {
+        int count = dom.getChildCount();
+        if (count > 0 && random.nextBoolean()) {
+            int index = random.nextInt(count);
+            if (random.nextBoolean()) {
+                mutate(dom.getChild(index), random);
+            } else {
+                dom.removeChild(index);
+            }
+        } else if (random.nextBoolean()) {
+            dom.addChild(dom(NAMES[random.nextInt(NAMES.length)], random, 1));
+        } else {
+            dom.setValue(word(random));
+        }
+    }
+
+    private static Object value(Method setter, Random random, boolean full) throws Exception {
+        Class<?> type = setter.getParameterTypes()[0];
+        if (List.class.equals(type)) {
+            List<Object> list = new ArrayList<>();
+            for (int i = full ? 2 : random.nextInt(3); i > 0; i--) {
+                list.add(value(elementType(setter), random, full));
+            }
+            return list;
+        }
+        return value(type, random, full);
+    }
+
+    private static Object value(Class<?> type, Random random, boolean full) throws Exception {
+        if (String.class.equals(type)) {
+            return word(random);
+        } else if (boolean.class.equals(type)) {
+            return random.nextBoolean();
+        } else if (int.class.equals(type)) {
+            return random.nextInt(3);
+        } else if (Properties.class.equals(type)) {
+            Properties properties = new Properties();
+            for (int i = full ? 3 : random.nextInt(3); i > 0; i--) {
+                properties.setProperty(NAMES[random.nextInt(NAMES.length)], word(random));
+            }
+            return properties;
+        } else if (Object.class.equals(type)) {
+            return dom("configuration", random, 0);
+        } else if (type.getPackage().equals(Model.class.getPackage())) {
+            Object bean = type.getConstructor().newInstance();
+            populate(bean, random, full);
+            return bean;
+        }
+        throw new IllegalStateException("Unsupported property type " + type);
+    }
+
+    private static Xpp3Dom dom(String name, Random random, int depth) {
+        Xpp3Dom dom = new Xpp3Dom(name);
+        if (random.nextInt(4) == 0) {
+            dom.setAttribute(NAMES[random.nextInt(NAMES.length)], word(random));
+        }
+        if (depth < 3 && random.nextBoolean()) {
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                dom.addChild(dom(NAMES[random.nextInt(NAMES.length)], random, depth + 1));
+            }
+        } else {
+            dom.setValue(word(random));
+        }
+        return dom;
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static boolean isModel(Object value) {
+        return value != null && value.getClass().getPackage().equals(Model.class.getPackage());
+    }
+
+    /**
+     * @return the setters of the properties of a bean of the model by name, in a stable order, preferring the boolean
+     *         overloads of the properties that also accept a String
+     */
+    private static Map<String, Method> setters(Class<?> type) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            if (method.getName().startsWith("set") && method.getParameterCount() == 1
+                    && !Modifier.isStatic(method.getModifiers()) && !SKIPPED.contains(method.getName())
+                    && !File.class.equals(method.getParameterTypes()[0])
+                    && !InputLocation.class.equals(method.getParameterTypes()[0])
+                    && !InputSource.class.equals(method.getParameterTypes()[0])) {
+                methods.add(method);
+            }
+        }
+        methods.sort(Comparator.comparing(Method::getName)
+                .thenComparing(method -> !boolean.class.equals(method.getParameterTypes()[0])));
+        Map<String, Method> setters = new LinkedHashMap<>();
+        for (Method method : methods) {
+            setters.putIfAbsent(method.getName(), method);
+        }
+        return setters;
+    }
+
+    private static Method getter(Method setter) {
+        String property = setter.getName().substring(3);
+        try {
+            return setter.getDeclaringClass().getMethod("get" + property);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> elementType(Method setter) {
+        Type type = ((ParameterizedType) setter.getGenericParameterTypes()[0]).getActualTypeArguments()[0];
+        return (Class<?>) type;
+    }
+}
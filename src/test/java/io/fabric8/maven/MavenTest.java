@@ -2,20 +2,44 @@ package io.fabric8.maven;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
 import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.Profile;
 import org.apache.maven.model.Scm;
 import org.assertj.core.api.Assertions;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.jdom2.Comment;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.xmlunit.assertj.XmlAssert;
@@ -54,6 +78,90 @@ class MavenTest {
         assertThat(model.getArtifactId()).isEqualTo("maven-model-helper");
     }
 
+    @Test
+    void should_read_coordinates() throws Exception {
+        Coordinates coordinates = Maven.readCoordinates(Paths.get("pom.xml"));
+        assertThat(coordinates.getGroupId()).isEqualTo("io.fabric8");
+        assertThat(coordinates.getArtifactId()).isEqualTo("maven-model-helper");
+        assertThat(coordinates.getVersion()).isNotNull();
+        assertThat(coordinates.getPackaging()).isEqualTo("jar");
+        assertThat(coordinates.getParentGroupId()).isEqualTo("org.jboss");
+        assertThat(coordinates.getParentArtifactId()).isEqualTo("jboss-parent");
+        assertThat(coordinates.getParentVersion()).isNotNull();
+
+        Path parentPom = Paths.get(getClass().getResource("parent/parent-pom.xml").toURI());
+        Model model = Maven.readModel(parentPom);
+        coordinates = Maven.readCoordinates(parentPom);
+        assertThat(coordinates.getGroupId()).isNull();
+        assertThat(coordinates.getArtifactId()).isEqualTo(model.getArtifactId());
+        assertThat(coordinates.getParentVersion()).isEqualTo(model.getParent().getVersion());
+    }
+
+    @Test
+    void should_read_coordinates_using_reader() {
+        Coordinates coordinates = Maven.readCoordinates(new StringReader(
+                "<project><packaging>pom</packaging><description>caf&eacute;</description>"
+                        + "<licenses><license><name>ASL</name></license></licenses>"
+                        + "<artifactId> foo </artifactId><version>1.0</version>"
+                        + "<build><plugins><plugin><version>1</version></plugin></plugins></build></project>"));
+        assertThat(coordinates.getArtifactId()).isEqualTo("foo");
+        assertThat(coordinates.getVersion()).isEqualTo("1.0");
+        assertThat(coordinates.getPackaging()).isEqualTo("pom");
+        assertThat(coordinates.getParentArtifactId()).isNull();
+    }
+
+    @Test
+    void should_read_coordinates_declared_after_sections() {
+        String pom = "<project><artifactId>foo</artifactId><version>1.0</version>"
+                + "<dependencies><dependency><groupId>org.dep</groupId></dependency></dependencies>"
+                + "<properties><version>2.0</version></properties>"
+                + "<groupId>org.acme</groupId><parent><artifactId>bar</artifactId></parent></project>";
+        Coordinates coordinates = Maven.readCoordinates(new StringReader(pom));
+        Model model = Maven.readModel(new StringReader(pom));
+        assertThat(coordinates.getGroupId()).isEqualTo("org.acme").isEqualTo(model.getGroupId());
+        assertThat(coordinates.getArtifactId()).isEqualTo(model.getArtifactId());
+        assertThat(coordinates.getVersion()).isEqualTo("1.0").isEqualTo(model.getVersion());
+        assertThat(coordinates.getParentArtifactId()).isEqualTo("bar").isEqualTo(model.getParent().getArtifactId());
+
+        Assertions.assertThatThrownBy(() -> Maven.readCoordinates(new StringReader(
+                "<settings><groupId>org.acme</groupId><artifactId>foo</artifactId></settings>")))
+                .getRootCause().hasMessageStartingWith("Expected root element 'project' but found 'settings'");
+    }
+
+    @Test
+    void should_read_models_concurrently() throws Exception {
+        Path basePom = Paths.get("pom.xml");
+        Path parentPom = Paths.get(getClass().getResource("parent/parent-pom.xml").toURI());
+        Path targetPom = Paths.get(getClass().getResource("cmd/properties/target-pom.xml").toURI());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<Path, Model> models = Maven.readModels(Arrays.asList(basePom, parentPom, targetPom), executor);
+            assertThat(models).containsOnlyKeys(basePom, parentPom, targetPom);
+            assertThat(models.keySet()).containsExactly(basePom, parentPom, targetPom);
+            assertThat(models.get(basePom).getArtifactId()).isEqualTo("maven-model-helper");
+            assertThat(models.get(parentPom).getArtifactId()).isEqualTo("greeting-extension-deployment");
+            assertThat(models.get(targetPom).getProperties()).isInstanceOf(SortedProperties.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void should_isolate_failures_when_reading_models(@TempDir Path tempDir) {
+        Path basePom = Paths.get("pom.xml");
+        Path missingPom = tempDir.resolve("missing-pom.xml");
+        Map<Path, RuntimeException> failures = new HashMap<>();
+        Map<Path, Model> models = Maven.readModels(Arrays.asList(missingPom, basePom), Runnable::run,
+                failures::put);
+        assertThat(models).containsOnlyKeys(basePom);
+        assertThat(failures).containsOnlyKeys(missingPom);
+        assertThat(failures.get(missingPom)).isInstanceOf(UncheckedIOException.class);
+
+        List<Path> poms = Arrays.asList(missingPom, basePom);
+        Assertions.assertThatThrownBy(() -> Maven.readModels(poms))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
     @Test
     void should_write_model(@TempDir Path tempDir) throws IOException {
         File pom = tempDir.resolve("temp-pom.xml").toFile();
@@ -67,6 +175,327 @@ class MavenTest {
                 .contains("<groupId>org.example</groupId>", "<artifactId>example</artifactId>", "<version>1.0</version>");
     }
 
+    @Test
+    void should_write_model_only_if_changed(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+        Model model = Maven.readModel(pom);
+        model.setName("my-name");
+        assertThat(Maven.writeModelIfChanged(model, pom)).isTrue();
+        byte[] written = Files.readAllBytes(pom);
+
+        Files.setLastModifiedTime(pom, FileTime.fromMillis(0));
+        assertThat(Maven.writeModelIfChanged(Maven.readModel(pom), pom)).isFalse();
+        assertThat(Files.getLastModifiedTime(pom).toMillis()).isZero();
+        assertThat(Files.readAllBytes(pom)).isEqualTo(written);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(pom);
+        }
+    }
+
+    @Test
+    void should_create_model_with_default_permissions(@TempDir Path tempDir) throws Exception {
+        Model model = Maven.readModel(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()));
+        Path written = tempDir.resolve("written-pom.xml");
+        Path created = tempDir.resolve("created-pom.xml");
+        Maven.writeModel(model, written);
+        assertThat(Maven.writeModelIfChanged(model, created)).isTrue();
+        assertThat(Files.getPosixFilePermissions(created)).isEqualTo(Files.getPosixFilePermissions(written))
+                .contains(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+    }
+
+    @Test
+    void should_write_model_in_declared_encoding(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.write(pom, ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                + "<project>\n  <modelVersion>4.0.0</modelVersion>\n  <artifactId>example</artifactId>\n"
+                + "  <name>Caf\u00e9</name>\n</project>\n").getBytes(StandardCharsets.ISO_8859_1));
+        PomHandle handle = Maven.open(pom);
+        handle.getModel().setDescription("D\u00e9j\u00e0 vu");
+        handle.getModel().setUrl("https://example.com/\u20ac");
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Maven.writeModel(handle.getModel(), handle.getDocument(), os);
+        String written = new String(os.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertThat(written).contains("encoding=\"ISO-8859-1\"", "<name>Caf\u00e9</name>",
+                "<description>D\u00e9j\u00e0 vu</description>", "<url>https://example.com/&#x20ac;</url>");
+
+        Maven.writeModel(handle.getModel(), pom);
+        assertThat(Files.readAllBytes(pom)).isEqualTo(os.toByteArray());
+        assertThat(Maven.readModel(pom).getDescription()).isEqualTo("D\u00e9j\u00e0 vu");
+        assertThat(Maven.readModel(pom).getUrl()).isEqualTo("https://example.com/\u20ac");
+
+        // Characters out of the charset are escaped, even where the outputter cannot escape them
+        handle.getDocument().getRootElement().addContent(new Comment(" 5 \u20ac "));
+        os.reset();
+        Maven.writeModel(handle.getModel(), handle.getDocument(), os);
+        assertThat(new String(os.toByteArray(), StandardCharsets.ISO_8859_1)).contains("<!-- 5 &#x20ac; -->");
+    }
+
+    @Test
+    void should_write_model_to_channel(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+        PomHandle handle = Maven.open(pom);
+        handle.getModel().setName("my-name");
+
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        Maven.writeModel(handle.getModel(), handle.getDocument(), Channels.newChannel(channelOutput));
+        ByteArrayOutputStream streamOutput = new ByteArrayOutputStream();
+        Maven.writeModel(handle.getModel(), handle.getDocument(), streamOutput);
+
+        assertThat(channelOutput.toByteArray()).isEqualTo(streamOutput.toByteArray());
+        Maven.writeModel(handle.getModel(), pom);
+        assertThat(Files.readAllBytes(pom)).isEqualTo(streamOutput.toByteArray());
+    }
+
+    @Test
+    void should_write_model_in_memory(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+        byte[] original = Files.readAllBytes(pom);
+        Model model = Maven.readModel(new StringReader(new String(original, StandardCharsets.UTF_8)));
+        model.setName("my-name");
+        Maven.writeModel(model, pom);
+        byte[] expected = Files.readAllBytes(pom);
+
+        assertThat(Maven.writeModelToString(model, new String(original, StandardCharsets.UTF_8)))
+                .isEqualTo(new String(expected, StandardCharsets.UTF_8));
+        assertThat(Maven.writeModel(model, original)).isEqualTo(expected);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Maven.writeModel(model, new ByteArrayInputStream(original), os);
+        assertThat(os.toByteArray()).isEqualTo(expected);
+    }
+
+    @Test
+    void should_write_new_model_in_memory() {
+        Model model = Maven.newModel();
+        model.setArtifactId("example");
+        assertThat(Maven.readModel(new StringReader(Maven.writeModelToString(model, ""))).getArtifactId()).isEqualTo("example");
+        assertThat(Maven.readModel(new StringReader(new String(Maven.writeModel(model, new byte[0]),
+                StandardCharsets.UTF_8))).getArtifactId()).isEqualTo("example");
+    }
+
+    @Test
+    void should_insert_after_last_preceding_element_when_out_of_order() {
+        String original = "<project>\n  <modelVersion>4.0.0</modelVersion>\n  <name>example</name>\n"
+                + "  <artifactId>example</artifactId>\n</project>\n";
+        Model model = Maven.readModel(new StringReader(original));
+        model.setGroupId("org.example");
+        model.setDescription("description");
+
+        assertThat(Maven.writeModelToString(model, original)).contains("<project>\n  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>org.example</groupId>\n  <name>example</name>\n  <artifactId>example</artifactId>\n"
+                + "  <description>description</description>\n</project>");
+    }
+
+    @Test
+    void should_write_new_model_only_if_changed(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Model model = Maven.newModel();
+        model.setArtifactId("example");
+        assertThat(Maven.writeModelIfChanged(model, pom)).isTrue();
+        assertThat(Maven.readModel(pom).getArtifactId()).isEqualTo("example");
+    }
+
+    @Test
+    void should_write_many_new_dependencies(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+        Model model = Maven.readModel(pom);
+        int existing = model.getDependencies().size();
+        addDependencies(model, 50_000);
+        Maven.writeModel(model);
+
+        List<Dependency> dependencies = Maven.readModel(pom).getDependencies();
+        assertThat(dependencies).hasSize(existing + 50_000);
+        for (int i = 0; i < 50_000; i++) {
+            assertThat(dependencies.get(existing + i).getArtifactId()).isEqualTo("dependency-" + i);
+        }
+    }
+
+    @Test
+    void should_append_dependencies_in_linear_time(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+        int[] sizes = { 5_000, 50_000 };
+        long[] reads = new long[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            PomHandle handle = Maven.open(pom);
+            addDependencies(handle.getModel(), sizes[i]);
+            MavenJDOMWriter writer = new MavenJDOMWriter();
+            writer.update(handle.getModel(), handle.getDocument());
+            reads[i] = writer.getReadCount();
+            assertThat(reads[i]).isGreaterThanOrEqualTo(sizes[i]);
+        }
+        // Ten times the dependencies: about ten times the reads when appending is linear, a hundred when quadratic
+        assertThat(reads[1]).isLessThan(20 * reads[0]);
+    }
+
+    private static void addDependencies(Model model, int count) {
+        for (int i = 0; i < count; i++) {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId("org.example");
+            dependency.setArtifactId("dependency-" + i);
+            model.addDependency(dependency);
+        }
+    }
+
+    @Test
+    void should_write_many_properties(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+        Model model = Maven.readModel(pom);
+        for (int i = 0; i < 10_000; i++) {
+            model.addProperty("version.dependency-" + i, "1." + i);
+        }
+        Maven.writeModel(model);
+
+        model = Maven.readModel(pom);
+        assertThat(model.getProperties()).hasSize(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 4 == 0) {
+                model.getProperties().remove("version.dependency-" + i);
+            } else if (i % 4 == 1) {
+                model.addProperty("version.dependency-" + i, "2." + i);
+            }
+            model.addProperty("version.other-" + i, "3." + i);
+        }
+        Properties expected = new Properties();
+        expected.putAll(model.getProperties());
+        Maven.writeModel(model);
+
+        assertThat(Maven.readModel(pom).getProperties()).hasSize(17_500).isEqualTo(expected);
+    }
+
+    @Test
+    void should_write_large_plugin_configuration(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+        Model model = Maven.readModel(pom);
+        Plugin plugin = new Plugin();
+        plugin.setArtifactId("maven-surefire-plugin");
+        plugin.setConfiguration(configuration(5_000, 200, 0));
+        model.getBuild().addPlugin(plugin);
+        Maven.writeModel(model);
+
+        model = Maven.readModel(pom);
+        Plugin written = model.getBuild().getPluginsAsMap().get("org.apache.maven.plugins:maven-surefire-plugin");
+        assertThat(written.getConfiguration()).isEqualTo(configuration(5_000, 200, 0));
+
+        written.setConfiguration(configuration(4_000, 150, 1));
+        Maven.writeModel(model);
+        written = Maven.readModel(pom).getBuild().getPluginsAsMap().get("org.apache.maven.plugins:maven-surefire-plugin");
+        assertThat(written.getConfiguration()).isEqualTo(configuration(4_000, 150, 1));
+    }
+
+    /**
+     * A configuration with many repeated and distinct entries, and a deeply nested one. Entries keep their order for
+     * any seed, as existing elements are updated in document order.
+     */
+    private static Xpp3Dom configuration(int width, int depth, int seed) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom variables = new Xpp3Dom("systemPropertyVariables");
+        Xpp3Dom includes = new Xpp3Dom("includes");
+        for (int i = 0; i < width; i++) {
+            Xpp3Dom variable = new Xpp3Dom("variable" + (i % (width / 2)));
+            variable.setValue("value-" + (i * (seed + 1)));
+            variables.addChild(variable);
+            Xpp3Dom include = new Xpp3Dom("include");
+            include.setValue("**/*" + (i + seed) + "Test.java");
+            includes.addChild(include);
+        }
+        configuration.addChild(variables);
+        configuration.addChild(includes);
+        Xpp3Dom nested = configuration;
+        for (int i = 0; i < depth; i++) {
+            Xpp3Dom child = new Xpp3Dom("level" + (i % 3));
+            nested.addChild(child);
+            nested = child;
+        }
+        nested.setValue("leaf-" + seed);
+        return configuration;
+    }
+
+    @Test
+    void should_write_sections_concurrently(@TempDir Path tempDir) throws Exception {
+        Path sequential = tempDir.resolve("sequential-pom.xml");
+        Path concurrent = tempDir.resolve("concurrent-pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), sequential);
+        Files.copy(sequential, concurrent);
+        Model model = Maven.readModel(sequential);
+        model.setDependencyManagement(new DependencyManagement());
+        for (int i = 0; i < 10_000; i++) {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId("org.example");
+            dependency.setArtifactId("managed-" + i);
+            dependency.setVersion("1." + i);
+            model.getDependencyManagement().addDependency(dependency);
+            model.addProperty("version.managed-" + i, "1." + i);
+        }
+        for (int i = 0; i < 200; i++) {
+            Profile profile = new Profile();
+            profile.setId("profile-" + i);
+            profile.addModule("module-" + i);
+            model.addProfile(profile);
+        }
+        model.setName("concurrent");
+
+        Maven.writeModel(model, sequential);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Maven.writeModel(model, concurrent, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(concurrent).hasSameBinaryContentAs(sequential);
+        assertThat(Maven.readModel(concurrent).getDependencyManagement().getDependencies()).hasSize(10_000);
+    }
+
+    @Test
+    void should_read_and_write_models_from_many_threads(@TempDir Path tempDir) throws Exception {
+        Path parentPom = Paths.get(getClass().getResource("parent/parent-pom.xml").toURI());
+        int count = 256;
+        for (int i = 0; i < count; i++) {
+            Path expected = tempDir.resolve("expected-" + i + ".xml");
+            Files.copy(parentPom, expected);
+            Files.copy(parentPom, tempDir.resolve("actual-" + i + ".xml"));
+            Maven.writeModel(edit(Maven.readModel(expected), i), expected);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Callable<Model>> tasks = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                tasks.add(() -> {
+                    Path actual = tempDir.resolve("actual-" + index + ".xml");
+                    Maven.writeModel(edit(Maven.readModel(actual), index), actual);
+                    return Maven.readModel(actual);
+                });
+            }
+            List<Future<Model>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < count; i++) {
+                assertThat(results.get(i).get().getVersion()).isEqualTo("1." + i);
+                assertThat(tempDir.resolve("actual-" + i + ".xml"))
+                        .hasSameBinaryContentAs(tempDir.resolve("expected-" + i + ".xml"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Model edit(Model model, int index) {
+        model.setVersion("1." + index);
+        model.addProperty("index", String.valueOf(index));
+        Dependency dependency = new Dependency();
+        dependency.setGroupId("org.example");
+        dependency.setArtifactId("dependency-" + index);
+        model.addDependency(dependency);
+        return model;
+    }
+
     @Test
     void should_write_model_with_sorted_properties(@TempDir Path tempDir) throws IOException {
         Path basePom = Paths.get("pom.xml");
@@ -0,0 +1,125 @@
+package io.fabric8.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.apache.maven.model.Model;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ModelCacheTest {
+
+    @Test
+    void should_serve_unchanged_file_from_cache(@TempDir Path tempDir) throws Exception {
+        Path pom = writePom(tempDir.resolve("pom.xml"), "foo");
+        ModelCache cache = new ModelCache(10);
+
+        Model first = cache.readModel(pom);
+        Model second = cache.readModel(pom);
+
+        assertThat(first.getArtifactId()).isEqualTo("foo");
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getArtifactId()).isEqualTo("foo");
+        assertThat(second.getProperties()).isInstanceOf(SortedProperties.class);
+        assertThat(second.getPomFile()).isEqualTo(pom.toFile().getAbsoluteFile());
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_return_defensive_copies(@TempDir Path tempDir) throws Exception {
+        Path pom = writePom(tempDir.resolve("pom.xml"), "foo");
+        ModelCache cache = new ModelCache(10);
+
+        Model model = cache.readModel(pom);
+        model.setArtifactId("bar");
+        model.getProperties().setProperty("key", "value");
+
+        Model cached = cache.readModel(pom);
+        assertThat(cached.getArtifactId()).isEqualTo("foo");
+        assertThat(cached.getProperties()).doesNotContainKey("key");
+    }
+
+    @Test
+    void should_reload_modified_file(@TempDir Path tempDir) throws Exception {
+        Path pom = writePom(tempDir.resolve("pom.xml"), "foo");
+        ModelCache cache = new ModelCache(10);
+        cache.readModel(pom);
+
+        writePom(pom, "foobar");
+        assertThat(cache.readModel(pom).getArtifactId()).isEqualTo("foobar");
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void should_verify_content_hash(@TempDir Path tempDir) throws Exception {
+        Path pom = writePom(tempDir.resolve("pom.xml"), "foo");
+        FileTime lastModified = Files.getLastModifiedTime(pom);
+        ModelCache cache = new ModelCache(10, true);
+        cache.readModel(pom);
+
+        // Same size and same last modified time
+        writePom(pom, "bar");
+        Files.setLastModifiedTime(pom, lastModified);
+
+        assertThat(cache.readModel(pom).getArtifactId()).isEqualTo("bar");
+        assertThat(cache.readModel(pom).getArtifactId()).isEqualTo("bar");
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_evict_least_recently_used(@TempDir Path tempDir) throws Exception {
+        Path a = writePom(tempDir.resolve("a.xml"), "a");
+        Path b = writePom(tempDir.resolve("b.xml"), "b");
+        Path c = writePom(tempDir.resolve("c.xml"), "c");
+        ModelCache cache = new ModelCache(2);
+
+        cache.readModel(a);
+        cache.readModel(b);
+        cache.readModel(a);
+        cache.readModel(c);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        cache.readModel(a);
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        cache.readModel(b);
+        assertThat(cache.getMissCount()).isEqualTo(4);
+    }
+
+    @Test
+    void should_invalidate_written_file(@TempDir Path tempDir) throws Exception {
+        Path pom = writePom(tempDir.resolve("pom.xml"), "foo");
+        ModelCache cache = new ModelCache(10);
+        Model model = cache.readModel(pom);
+
+        model.setName("my-name");
+        Maven.writeModel(model, pom);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.readModel(pom).getName()).isEqualTo("my-name");
+    }
+
+    @Test
+    void should_read_declared_encoding(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.write(pom, ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<project><modelVersion>4.0.0</modelVersion>"
+                + "<artifactId>foo</artifactId><name>Café</name></project>").getBytes(StandardCharsets.ISO_8859_1));
+        ModelCache cache = new ModelCache(10);
+
+        assertThat(cache.readModel(pom).getName()).isEqualTo("Café")
+                .isEqualTo(Maven.open(pom).getModel().getName())
+                .isEqualTo(Maven.readModel(pom).getName());
+    }
+
+    private static Path writePom(Path pom, String artifactId) throws Exception {
+        String content = "<project><modelVersion>4.0.0</modelVersion><artifactId>" + artifactId
+                + "</artifactId></project>";
+        return Files.write(pom, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,78 @@
+package io.fabric8.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.jupiter.api.Test;
+
+class ModelsTest {
+
+    @Test
+    void should_compare_models_deeply() throws Exception {
+        Path pom = Paths.get(getClass().getResource("parent/parent-pom.xml").toURI());
+        Model model = Maven.readModel(pom);
+        Model copy = model.clone();
+        assertThat(Models.deepEquals(model, copy)).isTrue();
+        assertThat(Models.deepEquals(model.getDependencies(), copy.getDependencies())).isTrue();
+        assertThat(Models.deepEquals(new Model().getDependencies(), null)).isTrue();
+
+        // Computing a cached key does not make a difference
+        copy.getDependencies().get(0).getManagementKey();
+        assertThat(Models.deepEquals(model, copy)).isTrue();
+
+        Exclusion exclusion = new Exclusion();
+        exclusion.setGroupId("org.acme");
+        exclusion.setArtifactId("excluded");
+        copy.getDependencies().get(0).addExclusion(exclusion);
+        assertThat(Models.deepEquals(model, copy)).isFalse();
+        assertThat(Models.deepEquals(model.getBuild(), copy.getBuild())).isTrue();
+    }
+
+    @Test
+    void should_compare_properties() {
+        Model model = new Model();
+        model.addProperty("foo", "bar");
+        model.addProperty("baz", "qux");
+        Model copy = new Model();
+        copy.addProperty("baz", "qux");
+        copy.addProperty("foo", "bar");
+        assertThat(Models.deepEquals(model.getProperties(), copy.getProperties())).isTrue();
+        // The copy of a SortedProperties is a Properties
+        SortedProperties sorted = new SortedProperties();
+        sorted.putAll(model.getProperties());
+        assertThat(Models.deepEquals(sorted, copy.getProperties())).isTrue();
+        // Strings with the same String.hashCode
+        model.addProperty("foo", "Aa");
+        copy.addProperty("foo", "BB");
+        assertThat(Models.deepEquals(model.getProperties(), copy.getProperties())).isFalse();
+        assertThat(Models.deepEquals(model.getProperties(), null)).isFalse();
+    }
+
+    @Test
+    void should_compare_configurations() {
+        Plugin plugin = new Plugin();
+        plugin.setConfiguration(configuration("Aa"));
+        Plugin copy = plugin.clone();
+        assertThat(Models.deepEquals(plugin, copy)).isTrue();
+        copy.setConfiguration(configuration("BB"));
+        assertThat(Models.deepEquals(plugin, copy)).isFalse();
+        ((Xpp3Dom) copy.getConfiguration()).getChild("skip").setValue("Aa");
+        assertThat(Models.deepEquals(plugin, copy)).isTrue();
+        ((Xpp3Dom) copy.getConfiguration()).setAttribute("combine.children", "append");
+        assertThat(Models.deepEquals(plugin, copy)).isFalse();
+    }
+
+    private static Xpp3Dom configuration(String value) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom skip = new Xpp3Dom("skip");
+        skip.setValue(value);
+        configuration.addChild(skip);
+        return configuration;
+    }
+}
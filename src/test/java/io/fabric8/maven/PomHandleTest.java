@@ -0,0 +1,470 @@
+package io.fabric8.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.assertj.core.api.Assertions;
+import org.jdom2.Comment;
+import org.jdom2.Element;
+import org.jdom2.filter.Filters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PomHandleTest {
+
+    @Test
+    void should_open_model_and_document() throws Exception {
+        Path parentPom = Paths.get(getClass().getResource("parent/parent-pom.xml").toURI());
+        PomHandle handle = Maven.open(parentPom);
+        assertThat(handle.getPath()).isEqualTo(parentPom);
+        assertThat(handle.getModel().getArtifactId()).isEqualTo("greeting-extension-deployment");
+        assertThat(handle.getModel().getPomFile()).isEqualTo(parentPom.toFile());
+        assertThat(handle.getModel().getProperties()).isInstanceOf(SortedProperties.class);
+        assertThat(handle.getDocument().getRootElement().getName()).isEqualTo("project");
+    }
+
+    @Test
+    void should_save_same_content_as_write_model(@TempDir Path tempDir) throws Exception {
+        Path parentPom = Paths.get(getClass().getResource("parent/parent-pom.xml").toURI());
+        Path viaHandle = tempDir.resolve("handle-pom.xml");
+        Path viaWriteModel = tempDir.resolve("write-pom.xml");
+        Files.copy(parentPom, viaHandle);
+        Files.copy(parentPom, viaWriteModel);
+
+        PomHandle handle = Maven.open(viaHandle);
+        handle.getModel().setVersion("1.0");
+        handle.save();
+
+        Model model = Maven.readModel(viaWriteModel);
+        model.setVersion("1.0");
+        Maven.writeModel(model);
+
+        assertThat(viaHandle).hasSameTextualContentAs(viaWriteModel);
+    }
+
+    @Test
+    void should_save_same_content_as_write_model_for_every_edit(@TempDir Path tempDir) throws Exception {
+        Path viaHandle = tempDir.resolve("handle-pom.xml");
+        Path viaWriteModel = tempDir.resolve("write-pom.xml");
+        String original = "<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <artifactId>acme</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "  <properties>\n"
+                + "    <foo>bar</foo>\n"
+                + "  </properties>\n"
+                + "  <dependencies>\n"
+                + "    <dependency>\n"
+                + "      <groupId>org.acme</groupId>\n"
+                + "      <artifactId>core</artifactId>\n"
+                + "    </dependency>\n"
+                + "  </dependencies>\n"
+                + "  <build>\n"
+                + "    <finalName>acme</finalName>\n"
+                + "    <plugins><plugin><artifactId>maven-jar-plugin</artifactId></plugin></plugins>\n"
+                + "  </build>\n"
+                + "</project>\n";
+        Files.write(viaHandle, original.getBytes(StandardCharsets.UTF_8));
+        Files.write(viaWriteModel, original.getBytes(StandardCharsets.UTF_8));
+
+        List<Consumer<Model>> edits = Arrays.asList(
+                model -> model.setName("renamed"),
+                model -> model.addProperty("added", "true"),
+                model -> model.getBuild().setFinalName("renamed"),
+                model -> model.getDependencies().get(0).setVersion("2.0"),
+                model -> {
+                });
+        PomHandle handle = Maven.open(viaHandle);
+        for (Consumer<Model> edit : edits) {
+            edit.accept(handle.getModel());
+            handle.save();
+
+            Model model = Maven.readModel(viaWriteModel);
+            edit.accept(model);
+            Maven.writeModel(model);
+
+            assertThat(viaHandle).hasSameBinaryContentAs(viaWriteModel);
+        }
+    }
+
+    @Test
+    void should_leave_unchanged_sections_as_read(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.write(pom, ("<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <artifactId>acme</artifactId>\n"
+                + "  <version> 1.0 </version>\n"
+                + "  <dependencies>\n"
+                + "    <dependency>\n"
+                + "      <groupId>org.acme</groupId>\n"
+                + "      <artifactId>core</artifactId>\n"
+                + "      <optional>false</optional>\n"
+                + "    </dependency>\n"
+                + "  </dependencies>\n"
+                + "</project>\n").getBytes(StandardCharsets.UTF_8));
+
+        // The sections equal to the model read are not visited, so they are not normalized like a full write does
+        PomHandle handle = Maven.open(pom);
+        handle.getModel().setName("renamed");
+        assertThat(handle.save()).isTrue();
+        assertThat(new String(Files.readAllBytes(pom), StandardCharsets.UTF_8)).contains("<version>1.0</version>",
+                "<name>renamed</name>", "<optional>false</optional>");
+
+        handle.getModel().getDependencies().get(0).setVersion("2.0");
+        assertThat(handle.save()).isTrue();
+        assertThat(new String(Files.readAllBytes(pom), StandardCharsets.UTF_8)).contains("<version>2.0</version>")
+                .doesNotContain("<optional>");
+    }
+
+    @Test
+    void should_save_successive_edits(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+
+        PomHandle handle = Maven.open(pom);
+        handle.getModel().setName("first");
+        assertThat(handle.save()).isTrue();
+        assertThat(Maven.readModel(pom).getName()).isEqualTo("first");
+
+        handle.getModel().setName("second");
+        handle.getModel().getProperties().setProperty("foo", "bar");
+        assertThat(handle.save()).isTrue();
+        Model model = Maven.readModel(pom);
+        assertThat(model.getName()).isEqualTo("second");
+        assertThat(model.getProperties()).containsEntry("foo", "bar");
+
+        assertThat(handle.save()).isFalse();
+    }
+
+    @Test
+    void should_not_overwrite_external_changes(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+
+        PomHandle handle = Maven.open(pom);
+        Model external = Maven.readModel(pom);
+        external.setName("external");
+        Maven.writeModel(external, pom);
+        byte[] externalContent = Files.readAllBytes(pom);
+
+        Assertions.assertThatThrownBy(handle::save).isInstanceOf(IllegalStateException.class);
+        handle.getModel().setName("mine");
+        Assertions.assertThatThrownBy(handle::save).isInstanceOf(IllegalStateException.class);
+        assertThat(Files.readAllBytes(pom)).isEqualTo(externalContent);
+
+        // Touching the file without changing it is not a change
+        handle = Maven.open(pom);
+        handle.getModel().setName("mine");
+        assertThat(handle.save()).isTrue();
+        Files.setLastModifiedTime(pom, FileTime.fromMillis(0));
+        assertThat(handle.save()).isFalse();
+    }
+
+    @Test
+    void should_preserve_formatting_outside_of_changes(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        String original = "<?xml version='1.0'?>\n"
+                + "<!-- License header -->\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "\t<modelVersion>4.0.0</modelVersion>\n"
+                + "\t<groupId>org.acme</groupId>   <!-- the group -->\n"
+                + "\t<artifactId>acme</artifactId>\n"
+                + "\t<version>1.0</version>\n"
+                + "\t<properties>\n"
+                + "\t\t<foo>bar</foo><!-- keep me -->\n"
+                + "\t\t<removed>true</removed>\n"
+                + "\t</properties>\n"
+                + "\t<dependencies>\n"
+                + "\t\t<dependency>\n"
+                + "\t\t\t<groupId>org.acme</groupId>\n"
+                + "\t\t\t<artifactId>core</artifactId>\n"
+                + "\t\t</dependency>\n"
+                + "\t</dependencies>\n"
+                + "</project>\n";
+        Files.write(pom, original.getBytes(StandardCharsets.UTF_8));
+
+        PomHandle handle = Maven.open(pom);
+        handle.setPreserveFormatting(true);
+        handle.getModel().setVersion("2.0");
+        handle.getModel().getProperties().remove("removed");
+        Dependency dependency = new Dependency();
+        dependency.setGroupId("org.acme");
+        dependency.setArtifactId("api");
+        handle.getModel().addDependency(dependency);
+        assertThat(handle.save()).isTrue();
+
+        assertThat(new String(Files.readAllBytes(pom), StandardCharsets.UTF_8)).isEqualTo("<?xml version='1.0'?>\n"
+                + "<!-- License header -->\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "\t<modelVersion>4.0.0</modelVersion>\n"
+                + "\t<groupId>org.acme</groupId>   <!-- the group -->\n"
+                + "\t<artifactId>acme</artifactId>\n"
+                + "\t<version>2.0</version>\n"
+                + "\t<properties>\n"
+                + "\t\t<foo>bar</foo><!-- keep me -->\n"
+                + "\t</properties>\n"
+                + "\t<dependencies>\n"
+                + "\t\t<dependency>\n"
+                + "\t\t\t<groupId>org.acme</groupId>\n"
+                + "\t\t\t<artifactId>core</artifactId>\n"
+                + "\t\t</dependency>\n"
+                + "\t\t<dependency>\n"
+                + "\t\t\t<groupId>org.acme</groupId>\n"
+                + "\t\t\t<artifactId>api</artifactId>\n"
+                + "\t\t</dependency>\n"
+                + "\t</dependencies>\n"
+                + "</project>\n");
+        assertThat(handle.save()).isFalse();
+    }
+
+    @Test
+    void should_preserve_line_separators_and_encoding(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        String original = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\r\n"
+                + "<project>\r\n"
+                + "  <modelVersion>4.0.0</modelVersion>\r\n"
+                + "  <groupId>org.acme</groupId>\r\n"
+                + "  <artifactId>acme</artifactId>\r\n"
+                + "  <version>1.0</version>\r\n"
+                + "  <name>Caf\u00e9</name>\r\n"
+                + "</project>\r\n";
+        Files.write(pom, original.getBytes(StandardCharsets.ISO_8859_1));
+
+        PomHandle handle = Maven.open(pom);
+        handle.setPreserveFormatting(true);
+        handle.getModel().setVersion("2.0");
+        handle.getModel().setDescription("D\u00e9j\u00e0 vu");
+        assertThat(handle.save()).isTrue();
+
+        assertThat(new String(Files.readAllBytes(pom), StandardCharsets.ISO_8859_1))
+                .isEqualTo("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\r\n"
+                        + "<project>\r\n"
+                        + "  <modelVersion>4.0.0</modelVersion>\r\n"
+                        + "  <groupId>org.acme</groupId>\r\n"
+                        + "  <artifactId>acme</artifactId>\r\n"
+                        + "  <version>2.0</version>\r\n"
+                        + "  <name>Caf\u00e9</name>\r\n"
+                        + "  <description>D\u00e9j\u00e0 vu</description>\r\n"
+                        + "</project>\r\n");
+    }
+
+    @Test
+    void should_only_update_changed_sections(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.copy(Paths.get(getClass().getResource("parent/parent-pom.xml").toURI()), pom);
+
+        PomHandle handle = Maven.open(pom);
+        Element root = handle.getDocument().getRootElement();
+        Element build = root.getChild("build", root.getNamespace());
+        // The first save updates every section
+        handle.save();
+        // Not in the model: kept as long as the build section is unchanged
+        build.addContent(new Comment(" untouched "));
+        build.addContent(new Element("defaultGoal", root.getNamespace()).setText("untouched"));
+
+        handle.getModel().setName("renamed");
+        handle.save();
+        assertThat(build.getParent()).isSameAs(root);
+        assertThat(build.getContent(Filters.comment())).hasSize(1);
+        assertThat(build.getChildText("defaultGoal", root.getNamespace())).isEqualTo("untouched");
+
+        handle.getModel().getBuild().setFinalName("renamed");
+        handle.save();
+        assertThat(build.getChildText("finalName", root.getNamespace())).isEqualTo("renamed");
+        assertThat(build.getChild("defaultGoal", root.getNamespace())).isNull();
+        assertThat(Maven.readModel(pom).getBuild().getFinalName()).isEqualTo("renamed");
+    }
+
+    @Test
+    void should_save_same_content_on_a_pool(@TempDir Path tempDir) throws Exception {
+        Path parentPom = Paths.get(getClass().getResource("parent/parent-pom.xml").toURI());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean preserveFormatting : new boolean[] { false, true }) {
+                Path sequential = tempDir.resolve("sequential-" + preserveFormatting + ".xml");
+                Path concurrent = tempDir.resolve("concurrent-" + preserveFormatting + ".xml");
+                Files.copy(parentPom, sequential);
+                Files.copy(parentPom, concurrent);
+                for (Path pom : Arrays.asList(sequential, concurrent)) {
+                    PomHandle handle = Maven.open(pom);
+                    handle.setPreserveFormatting(preserveFormatting);
+                    if (pom == concurrent) {
+                        handle.setPool(pool);
+                    }
+                    Dependency dependency = new Dependency();
+                    dependency.setGroupId("org.acme");
+                    dependency.setArtifactId("api");
+                    handle.getModel().addDependency(dependency);
+                    handle.getModel().addProperty("acme.version", "2.0");
+                    handle.getModel().getBuild().setFinalName("renamed");
+                    assertThat(handle.save()).isTrue();
+                }
+                assertThat(concurrent).hasSameBinaryContentAs(sequential);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void should_match_list_entries_by_key(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        String original = "<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>org.acme</groupId>\n"
+                + "  <artifactId>acme</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "  <profiles>\n"
+                + "    <profile><id>first</id></profile>\n"
+                + "    <profile><id>second</id></profile>\n"
+                + "    <profile><id>third</id></profile>\n"
+                + "  </profiles>\n"
+                + "  <dependencies>\n"
+                + "    <dependency><groupId>org.acme</groupId><artifactId>core</artifactId></dependency>\n"
+                + "    <dependency><groupId>org.acme</groupId><artifactId>core</artifactId><type>pom</type></dependency>\n"
+                + "  </dependencies>\n"
+                + "</project>\n";
+        Files.write(pom, original.getBytes(StandardCharsets.UTF_8));
+
+        PomHandle handle = Maven.open(pom);
+        handle.setPreserveFormatting(true);
+        Model model = handle.getModel();
+        Dependency dependency = new Dependency();
+        dependency.setGroupId("org.acme");
+        dependency.setArtifactId("api");
+        model.getDependencies().add(0, dependency);
+        model.getDependencies().get(2).setScope("import");
+        model.getProfiles().add(model.getProfiles().remove(0));
+        model.getProfiles().remove(0);
+        assertThat(handle.save()).isTrue();
+
+        assertThat(new String(Files.readAllBytes(pom), StandardCharsets.UTF_8)).isEqualTo("<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>org.acme</groupId>\n"
+                + "  <artifactId>acme</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "  <profiles>\n"
+                + "    <profile><id>third</id></profile>\n"
+                + "    <profile><id>first</id></profile>\n"
+                + "  </profiles>\n"
+                + "  <dependencies>\n"
+                + "    <dependency>\n"
+                + "      <groupId>org.acme</groupId>\n"
+                + "      <artifactId>api</artifactId>\n"
+                + "    </dependency>\n"
+                + "    <dependency><groupId>org.acme</groupId><artifactId>core</artifactId></dependency>\n"
+                + "    <dependency><groupId>org.acme</groupId><artifactId>core</artifactId><type>pom</type>\n"
+                + "      <scope>import</scope></dependency>\n"
+                + "  </dependencies>\n"
+                + "</project>\n");
+    }
+
+    @Test
+    void should_insert_new_elements_in_schema_order(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        String original = "<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>org.acme</groupId>\n"
+                + "  <artifactId>acme</artifactId>\n"
+                + "  <packaging>pom</packaging>\n"
+                + "  <dependencies>\n"
+                + "    <dependency>\n"
+                + "      <artifactId>core</artifactId>\n"
+                + "      <scope>test</scope>\n"
+                + "    </dependency>\n"
+                + "  </dependencies>\n"
+                + "</project>\n";
+        Files.write(pom, original.getBytes(StandardCharsets.UTF_8));
+
+        PomHandle handle = Maven.open(pom);
+        handle.setPreserveFormatting(true);
+        Model model = handle.getModel();
+        model.setVersion("1.0");
+        model.setDescription("Acme");
+        model.getDependencies().get(0).setGroupId("org.acme");
+        model.getDependencies().get(0).setVersion("2.0");
+        assertThat(handle.save()).isTrue();
+
+        assertThat(new String(Files.readAllBytes(pom), StandardCharsets.UTF_8)).isEqualTo("<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>org.acme</groupId>\n"
+                + "  <artifactId>acme</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "  <packaging>pom</packaging>\n"
+                + "  <description>Acme</description>\n"
+                + "  <dependencies>\n"
+                + "    <dependency>\n"
+                + "      <groupId>org.acme</groupId>\n"
+                + "      <artifactId>core</artifactId>\n"
+                + "      <version>2.0</version>\n"
+                + "      <scope>test</scope>\n"
+                + "    </dependency>\n"
+                + "  </dependencies>\n"
+                + "</project>\n");
+    }
+
+    @Test
+    void should_move_reordered_elements_with_their_comments(@TempDir Path tempDir) throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        List<Integer> order = IntStream.range(0, 1_000).boxed().collect(Collectors.toList());
+        Collections.shuffle(order, new Random(42));
+        StringBuilder original = new StringBuilder("<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>org.acme</groupId>\n"
+                + "  <artifactId>acme</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "  <modules>\n"
+                + "    <module>c</module>\n"
+                + "    <module>b</module>\n"
+                + "    <module>a</module>\n"
+                + "  </modules>\n"
+                + "  <dependencies>\n");
+        for (int i : order) {
+            if (i % 10 == 0) {
+                original.append("    <!-- About dependency ").append(i).append(" -->\n");
+            }
+            original.append("    <dependency><groupId>org.acme</groupId><artifactId>dependency-")
+                    .append(String.format("%04d", i)).append("</artifactId></dependency>\n");
+        }
+        original.append("  </dependencies>\n</project>\n");
+        Files.write(pom, original.toString().getBytes(StandardCharsets.UTF_8));
+
+        PomHandle handle = Maven.open(pom);
+        handle.setPreserveFormatting(true);
+        handle.getModel().getDependencies().sort(Comparator.comparing(Dependency::getArtifactId));
+        Collections.sort(handle.getModel().getModules());
+        assertThat(handle.save()).isTrue();
+
+        // Elements were moved, not rewritten
+        List<String> lines = Files.readAllLines(pom);
+        assertThat(lines).containsExactlyInAnyOrderElementsOf(Arrays.asList(original.toString().split("\n")));
+        assertThat(lines.subList(6, 9)).containsExactly("    <module>a</module>", "    <module>b</module>",
+                "    <module>c</module>");
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains("<!-- About dependency ")) {
+                String number = lines.get(i).replaceAll("\\D", "");
+                assertThat(lines.get(i + 1)).contains(String.format("dependency-%04d", Integer.parseInt(number)));
+            }
+        }
+        List<Dependency> dependencies = Maven.readModel(pom).getDependencies();
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(dependencies.get(i).getArtifactId()).isEqualTo(String.format("dependency-%04d", i));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.fabric8.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReactorTest {
+
+    @Test
+    void should_read_multi_module_tree(@TempDir Path tempDir) throws IOException {
+        Path root = writePom(tempDir, "root", "a", "b/pom.xml");
+        Path a = writePom(tempDir.resolve("a"), "a", "a1", "a2");
+        Path a1 = writePom(tempDir.resolve("a/a1"), "a1");
+        Path a2 = writePom(tempDir.resolve("a/a2"), "a2");
+        Path b = writePom(tempDir.resolve("b"), "b");
+
+        Reactor reactor = Maven.readReactor(root);
+
+        assertThat(reactor.getRoot()).isEqualTo(root);
+        assertThat(reactor.getModels().keySet()).containsExactly(root, a, a1, a2, b);
+        assertThat(reactor.getModel(a2).getArtifactId()).isEqualTo("a2");
+        assertThat(reactor.getModules(root)).containsExactly(a, b);
+        assertThat(reactor.getModules(a)).containsExactly(a1, a2);
+        assertThat(reactor.getModules(b)).isEmpty();
+        assertThat(reactor.getParent(root)).isNull();
+        assertThat(reactor.getParent(a1)).isEqualTo(a);
+        assertThat(reactor.getParent(b)).isEqualTo(root);
+    }
+
+    @Test
+    void should_detect_module_cycle(@TempDir Path tempDir) throws IOException {
+        Path root = writePom(tempDir, "root", "a");
+        writePom(tempDir.resolve("a"), "a", "..");
+
+        assertThatThrownBy(() -> Maven.readReactor(root))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("cycle");
+    }
+
+    @Test
+    void should_detect_duplicate_module(@TempDir Path tempDir) throws IOException {
+        Path root = writePom(tempDir, "root", "a", "b");
+        writePom(tempDir.resolve("a"), "a");
+        writePom(tempDir.resolve("b"), "b", "../a");
+
+        assertThatThrownBy(() -> Maven.readReactor(root))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Duplicate module");
+    }
+
+    private static Path writePom(Path dir, String artifactId, String... modules) throws IOException {
+        StringBuilder sb = new StringBuilder("<project><modelVersion>4.0.0</modelVersion><artifactId>")
+                .append(artifactId).append("</artifactId><modules>");
+        for (String module : modules) {
+            sb.append("<module>").append(module).append("</module>");
+        }
+        sb.append("</modules></project>");
+        Files.createDirectories(dir);
+        return Files.write(dir.resolve("pom.xml"), sb.toString().getBytes()).toAbsolutePath().normalize();
+    }
+}
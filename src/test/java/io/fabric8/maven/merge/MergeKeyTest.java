@@ -0,0 +1,27 @@
+package io.fabric8.maven.merge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class MergeKeyTest {
+
+    @Test
+    void should_intern_keys() {
+        MergeKey.Interner interner = new MergeKey.Interner();
+        MergeKey key = interner.intern("org.example", "example", "jar", null);
+        for (int i = 0; i < 1000; i++) {
+            interner.intern("org.example", "example-" + i, "jar", null);
+        }
+        assertThat(interner.intern(new String("org.example"), "example", "jar", null)).isSameAs(key);
+        assertThat(interner.intern("org.example", "example", "jar", "tests")).isNotEqualTo(key);
+    }
+
+    @Test
+    void should_compare_keys_from_different_interners() {
+        MergeKey key = new MergeKey.Interner().intern("org.example", "example");
+        MergeKey other = new MergeKey.Interner().intern("org.example", "example");
+        assertThat(other).isNotSameAs(key).isEqualTo(key).hasSameHashCodeAs(key);
+        assertThat(key).hasToString("org.example:example");
+    }
+}
@@ -2,11 +2,27 @@ package io.fabric8.maven.merge;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import org.apache.maven.model.Build;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.apache.maven.model.Plugin;
 import org.apache.maven.model.Profile;
+import org.apache.maven.model.Scm;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.apache.maven.model.merge.ModelMerger;
 import org.junit.jupiter.api.Test;
 
@@ -89,4 +105,272 @@ class SmartModelMergerTest {
         assertThat(target.getProfiles().get(0).getModules()).containsExactly("A", "B", "C", "D", "E", "F");
     }
 
+    @Test
+    void should_keep_dependencies_with_different_classifiers() {
+        ModelMerger merger = new SmartModelMerger();
+        Model source = new Model();
+        Dependency tests = new Dependency();
+        tests.setGroupId("foo");
+        tests.setArtifactId("bar");
+        tests.setClassifier("tests");
+        source.addDependency(tests);
+
+        Model target = new Model();
+        Dependency main = new Dependency();
+        main.setGroupId("foo");
+        main.setArtifactId("bar");
+        target.addDependency(main);
+
+        merger.merge(target, source, true, null);
+
+        assertThat(target.getDependencies()).containsExactly(main, tests);
+    }
+
+    @Test
+    void should_merge_plugins_by_key() {
+        ModelMerger merger = new SmartModelMerger();
+        Model source = new Model();
+        source.setBuild(new Build());
+        Plugin sourcePlugin = new Plugin();
+        sourcePlugin.setArtifactId("maven-compiler-plugin");
+        sourcePlugin.setVersion("3.11.0");
+        source.getBuild().addPlugin(sourcePlugin);
+
+        Model target = new Model();
+        target.setBuild(new Build());
+        Plugin targetPlugin = new Plugin();
+        targetPlugin.setArtifactId("maven-compiler-plugin");
+        targetPlugin.setVersion("3.8.1");
+        target.getBuild().addPlugin(targetPlugin);
+
+        merger.merge(target, source, true, null);
+
+        assertThat(target.getBuild().getPlugins()).containsExactly(sourcePlugin);
+    }
+
+    @Test
+    void should_merge_all_sources_like_sequential_merges() {
+        for (long seed = 0; seed < 50; seed++) {
+            for (boolean sourceDominant : new boolean[] { false, true }) {
+                Model expected = randomModel(new Random(~seed), 0);
+                SmartModelMerger merger = new SmartModelMerger();
+                for (Model source : randomSources(seed)) {
+                    merger.merge(expected, source, sourceDominant, null);
+                }
+
+                Model actual = randomModel(new Random(~seed), 0);
+                new SmartModelMerger().mergeAll(actual, randomSources(seed), sourceDominant);
+
+                assertThat(toString(actual)).as("seed %d", seed).isEqualTo(toString(expected));
+            }
+        }
+    }
+
+    @Test
+    void should_merge_all_sources_in_parallel_like_sequential_merges() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long seed = 0; seed < 30; seed++) {
+                for (boolean sourceDominant : new boolean[] { false, true }) {
+                    Model expected = randomModel(new Random(~seed), 0);
+                    SmartModelMerger merger = new SmartModelMerger();
+                    for (Model source : randomSources(seed, 200)) {
+                        merger.merge(expected, source, sourceDominant, null);
+                    }
+
+                    Model actual = randomModel(new Random(~seed), 0);
+                    new SmartModelMerger().mergeAll(actual, randomSources(seed, 200), sourceDominant, pool);
+
+                    assertThat(toString(actual)).as("seed %d", seed).isEqualTo(toString(expected));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void should_apply_plan_like_merge() {
+        for (long seed = 0; seed < 50; seed++) {
+            for (boolean sourceDominant : new boolean[] { false, true }) {
+                Model expected = randomModel(new Random(~seed), 0);
+                new SmartModelMerger().merge(expected, randomModel(new Random(seed), 1), sourceDominant, null);
+
+                MergePlan plan = new SmartModelMerger().compile(randomModel(new Random(seed), 1), sourceDominant);
+                Model actual = randomModel(new Random(~seed), 0);
+                plan.apply(actual);
+
+                assertThat(toString(actual)).as("seed %d", seed).isEqualTo(toString(expected));
+            }
+        }
+    }
+
+    @Test
+    void should_apply_plan_from_many_threads() throws Exception {
+        Model source = randomModel(new Random(42), 1);
+        MergePlan plan = new SmartModelMerger().compile(source, true);
+        String compiled = toString(source);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            for (long seed = 0; seed < 200; seed++) {
+                long targetSeed = seed;
+                tasks.add(() -> {
+                    Model target = randomModel(new Random(targetSeed), 0);
+                    plan.apply(target);
+                    // Later changes to the targets must not leak into the plan
+                    target.getProfiles().forEach(profile -> profile.addModule("changed"));
+                    return toString(target);
+                });
+            }
+            List<Future<String>> results = executor.invokeAll(tasks);
+            for (int seed = 0; seed < 200; seed++) {
+                Model expected = randomModel(new Random(seed), 0);
+                new SmartModelMerger().merge(expected, randomModel(new Random(42), 1), true, null);
+                expected.getProfiles().forEach(profile -> profile.addModule("changed"));
+                assertThat(results.get(seed).get()).as("seed %d", seed).isEqualTo(toString(expected));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(toString(source)).isEqualTo(compiled);
+    }
+
+    @Test
+    void should_merge_into_new_model_like_merge() {
+        for (long seed = 0; seed < 50; seed++) {
+            for (boolean sourceDominant : new boolean[] { false, true }) {
+                Model expected = randomModel(new Random(~seed), 0);
+                SmartModelMerger merger = new SmartModelMerger();
+                for (Model source : randomSources(seed)) {
+                    merger.merge(expected, source, sourceDominant, null);
+                }
+
+                Model actual = randomModel(new Random(~seed), 0);
+                List<Model> models = new ArrayList<>();
+                models.add(actual);
+                models.addAll(randomSources(seed));
+                List<String> originals = new ArrayList<>();
+                models.forEach(model -> originals.add(toString(model)));
+                // Later merges must not modify the intermediate results either
+                List<Model> results = new ArrayList<>();
+                for (Model source : models.subList(1, models.size())) {
+                    actual = merger.merged(actual, source, sourceDominant);
+                    results.add(actual);
+                    originals.add(toString(actual));
+                }
+                models.addAll(results);
+
+                assertThat(toString(actual)).as("seed %d", seed).isEqualTo(toString(expected));
+                for (int i = 0; i < models.size(); i++) {
+                    assertThat(toString(models.get(i))).as("seed %d", seed).isEqualTo(originals.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void should_share_what_merge_does_not_change() {
+        Model target = new Model();
+        target.setBuild(new Build());
+        target.setScm(new Scm());
+        target.getScm().setUrl("https://example.org/scm");
+        Profile profile = new Profile();
+        profile.setId("foo");
+        profile.setModules(Arrays.asList("A", "B"));
+        target.addProfile(profile);
+        Model source = new Model();
+        source.setScm(new Scm());
+        source.getScm().setTag("v1.0");
+        source.addProperty("foo", "bar");
+
+        Model merged = new SmartModelMerger().merged(target, source, true);
+
+        assertThat(merged).isNotSameAs(target);
+        assertThat(merged.getBuild()).isSameAs(target.getBuild());
+        assertThat(merged.getProfiles().get(0)).isSameAs(profile);
+        assertThat(merged.getScm()).isNotSameAs(target.getScm());
+        assertThat(merged.getScm().getUrl()).isEqualTo("https://example.org/scm");
+        assertThat(merged.getScm().getTag()).isEqualTo("v1.0");
+        assertThat(target.getScm().getTag()).isEqualTo("HEAD");
+        assertThat(target.getProperties()).isEmpty();
+    }
+
+    static List<Model> randomSources(long seed) {
+        return randomSources(seed, 20);
+    }
+
+    /**
+     * Sources built from the same seed are equal, but share no objects, as merging aliases some of them
+     */
+    static List<Model> randomSources(long seed, int maxCount) {
+        Random random = new Random(seed);
+        List<Model> sources = new ArrayList<>();
+        int count = 1 + random.nextInt(maxCount);
+        for (int i = 1; i <= count; i++) {
+            sources.add(randomModel(random, i));
+        }
+        return sources;
+    }
+
+    /**
+     * A model drawing its coordinates from small pools, so that models overlap
+     */
+    static Model randomModel(Random random, int index) {
+        Model model = new Model();
+        model.setArtifactId("model-" + index);
+        if (random.nextBoolean()) {
+            model.setName("name-" + index);
+        }
+        int packaging = random.nextInt(3);
+        if (packaging > 0) {
+            model.setPackaging(packaging == 1 ? null : "pom");
+        }
+        fill(model, random, index);
+        for (int i = random.nextInt(4); i > 0; i--) {
+            Profile profile = new Profile();
+            profile.setId("profile-" + random.nextInt(5));
+            fill(profile, random, index);
+            model.addProfile(profile);
+        }
+        if (random.nextBoolean()) {
+            model.setBuild(new Build());
+            for (int i = random.nextInt(4); i > 0; i--) {
+                Plugin plugin = new Plugin();
+                plugin.setArtifactId("plugin-" + random.nextInt(6));
+                plugin.setVersion(index + "." + i);
+                model.getBuild().addPlugin(plugin);
+            }
+        }
+        return model;
+    }
+
+    private static void fill(ModelBase base, Random random, int index) {
+        for (int i = random.nextInt(6); i > 0; i--) {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId("group-" + random.nextInt(3));
+            dependency.setArtifactId("artifact-" + random.nextInt(10));
+            if (random.nextInt(4) == 0) {
+                dependency.setClassifier("tests");
+            }
+            dependency.setVersion(index + "." + i);
+            base.addDependency(dependency);
+        }
+        for (int i = random.nextInt(6); i > 0; i--) {
+            base.addProperty("property-" + random.nextInt(10), "value-" + index);
+        }
+        for (int i = random.nextInt(4); i > 0; i--) {
+            base.addModule("module-" + random.nextInt(8));
+        }
+    }
+
+    static String toString(Model model) {
+        StringWriter writer = new StringWriter();
+        try {
+            new MavenXpp3Writer().write(writer, model);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
 }